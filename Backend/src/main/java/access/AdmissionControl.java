@@ -0,0 +1,282 @@
+package access;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bound the number of searches that run at once, separately for the
+ * interactive (document and facet), full text and export endpoints, such that
+ * a few long exports cannot occupy all request threads. A request that finds
+ * its {@link Pool} busy waits in a bounded queue for at most
+ * <i>serve.admission.maxWait</i> milliseconds. It is rejected if the queue is
+ * full or its wait times out. The pools are resized when the configuration
+ * is reloaded.
+ */
+public class AdmissionControl {
+  private static final Logger log =
+    Logger.getLogger(AdmissionControl.class.getName());
+
+  private static AdmissionControl instance = null;
+
+  private final Pool interactive;
+  private final Pool fullText;
+  private final Pool export;
+
+  private AdmissionControl() {
+    long maxWait = C.Serve.admissionMaxWait();
+    interactive = new Pool(C.Serve.interactiveConcurrency(),
+      C.Serve.interactiveQueue(), maxWait);
+    fullText = new Pool(C.Serve.fullTextConcurrency(),
+      C.Serve.fullTextQueue(), maxWait);
+    export = new Pool(C.Serve.exportConcurrency(), C.Serve.exportQueue(),
+      maxWait);
+    C.addReloadListener(this::reconfigure);
+  }
+
+  /**
+   * Resize the pools to the current configuration.
+   */
+  private void reconfigure() {
+    long maxWait = C.Serve.admissionMaxWait();
+    boolean resized = interactive.resize(C.Serve.interactiveConcurrency(),
+      C.Serve.interactiveQueue(), maxWait);
+    resized |= fullText.resize(C.Serve.fullTextConcurrency(),
+      C.Serve.fullTextQueue(), maxWait);
+    resized |= export.resize(C.Serve.exportConcurrency(),
+      C.Serve.exportQueue(), maxWait);
+    if (resized) {
+      log.log(Level.INFO, "Resized the admission pools.");
+    }
+  }
+
+  /**
+   * Ensure that there is <i>one</i> instance of the pools.
+   *
+   * @return {@link AdmissionControl}
+   */
+  public static synchronized AdmissionControl getInstance() {
+    if (instance == null) {
+      instance = new AdmissionControl();
+    }
+    return instance;
+  }
+
+  /**
+   * @return pool of the document and facet searches
+   */
+  public Pool interactive() {
+    return interactive;
+  }
+
+  /**
+   * @return pool of the full text searches
+   */
+  public Pool fullText() {
+    return fullText;
+  }
+
+  /**
+   * @return pool of the exports
+   */
+  public Pool export() {
+    return export;
+  }
+
+  /**
+   * Outcome of a request for admission
+   */
+  public enum Admission {
+    /**
+     * The request may run, it must {@link Pool#release()} its permit
+     */
+    ADMITTED,
+    /**
+     * The queue was full
+     */
+    QUEUE_FULL,
+    /**
+     * The request waited too long or was interrupted
+     */
+    TIMED_OUT
+  }
+
+  /**
+   * Permits for a bounded number of concurrent searches and a bounded queue
+   * of searches that wait for a permit. Waiting searches are admitted in
+   * arrival order.
+   */
+  public static class Pool {
+    private final Permits permits;
+    private volatile int concurrency;
+    private volatile int queueSize;
+    private volatile long maxWait;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param concurrency number of searches that run at once
+     * @param queueSize   number of searches that wait for a permit
+     * @param maxWait     milliseconds a search waits for a permit
+     */
+    Pool(int concurrency, int queueSize, long maxWait) {
+      this.permits = new Permits(concurrency);
+      this.concurrency = concurrency;
+      this.queueSize = queueSize;
+      this.maxWait = maxWait;
+    }
+
+    /**
+     * Take a permit, waiting in the queue if none is available.
+     *
+     * @return {@link Admission#ADMITTED} if the search may run
+     */
+    public Admission acquire() {
+      // Unlike tryAcquire(), a timed tryAcquire does not barge ahead of
+      // queued searches
+      try {
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+          admitted.incrementAndGet();
+          return Admission.ADMITTED;
+        }
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        timedOut.incrementAndGet();
+        return Admission.TIMED_OUT;
+      }
+      if (queued.incrementAndGet() > queueSize) {
+        queued.decrementAndGet();
+        rejected.incrementAndGet();
+        return Admission.QUEUE_FULL;
+      }
+      long start = System.nanoTime();
+      boolean acquired = false;
+      try {
+        acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      } finally {
+        queued.decrementAndGet();
+        long nanos = System.nanoTime() - start;
+        waitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+      }
+      if (!acquired) {
+        timedOut.incrementAndGet();
+        return Admission.TIMED_OUT;
+      }
+      admitted.incrementAndGet();
+      return Admission.ADMITTED;
+    }
+
+    /**
+     * Return the permit of an admitted search.
+     */
+    public void release() {
+      permits.release();
+    }
+
+    /**
+     * Change the limits. If the pool shrinks, running searches keep their
+     * permits and new searches are admitted once fewer than the new number
+     * of searches are running. Searches that already wait keep their place.
+     *
+     * @param concurrency number of searches that run at once
+     * @param queueSize   number of searches that wait for a permit
+     * @param maxWait     milliseconds a search waits for a permit
+     * @return true if a limit changed
+     */
+    synchronized boolean resize(int concurrency, int queueSize,
+                                long maxWait) {
+      boolean changed = concurrency != this.concurrency ||
+        queueSize != this.queueSize || maxWait != this.maxWait;
+      if (concurrency > this.concurrency) {
+        permits.release(concurrency - this.concurrency);
+      } else if (concurrency < this.concurrency) {
+        // The available permits may become negative until enough searches
+        // have finished
+        permits.reducePermits(this.concurrency - concurrency);
+      }
+      this.concurrency = concurrency;
+      this.queueSize = queueSize;
+      this.maxWait = maxWait;
+      return changed;
+    }
+
+    /**
+     * @return number of searches that are running
+     */
+    public int active() {
+      return concurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return number of searches that wait for a permit
+     */
+    public int queued() {
+      return queued.get();
+    }
+
+    /**
+     * @return number of admitted searches
+     */
+    public long admitted() {
+      return admitted.get();
+    }
+
+    /**
+     * @return number of searches rejected because the queue was full
+     */
+    public long rejected() {
+      return rejected.get();
+    }
+
+    /**
+     * @return number of searches rejected because they waited too long
+     */
+    public long timedOut() {
+      return timedOut.get();
+    }
+
+    /**
+     * @return average milliseconds an admitted or timed out search waited
+     */
+    public double averageWait() {
+      long requests = admitted.get() + timedOut.get();
+      return requests > 0 ? waitNanos.get() / 1e6 / requests : 0.0;
+    }
+
+    /**
+     * @return longest wait of a search in milliseconds
+     */
+    public double maxWait() {
+      return maxWaitNanos.get() / 1e6;
+    }
+  }
+
+  /**
+   * A fair semaphore whose number of permits can be reduced
+   */
+  private static class Permits extends Semaphore {
+    private static final long serialVersionUID = 1L;
+
+    private Permits(int permits) {
+      super(permits, true);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
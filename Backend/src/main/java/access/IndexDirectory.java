@@ -0,0 +1,89 @@
+package access;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.util.Constants;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Open the index {@link Directory} selected by <i>serve.index.directory</i>.
+ */
+public class IndexDirectory {
+  private static final Logger log =
+    Logger.getLogger(IndexDirectory.class.getName());
+
+  private static final String AUTO = "auto";
+  private static final String MMAP = "mmap";
+  private static final String NIO = "nio";
+
+  private static final long MEGABYTE = 1024 * 1024;
+
+  private IndexDirectory() {}
+
+  /**
+   * Open the index directory. With <i>auto</i> the index is memory-mapped on
+   * 64-bit Linux and opened with {@link FSDirectory#open(Path)} elsewhere.
+   * Memory-mapped files whose extension is listed in
+   * <i>serve.index.preload</i> are loaded into the page cache when they are
+   * opened. Files inside compound files are never preloaded.
+   *
+   * @param path to the index
+   * @return {@link Directory}
+   * @throws IOException in case opening the directory failed
+   */
+  public static Directory open(Path path) throws IOException {
+    String type = C.Serve.indexDirectory();
+    if (type.equals(AUTO)) {
+      boolean mmap = Constants.LINUX && Constants.JRE_IS_64BIT &&
+        MMapDirectory.UNMAP_SUPPORTED;
+      if (!mmap) {
+        return FSDirectory.open(path);
+      }
+      type = MMAP;
+    }
+    switch (type) {
+      case NIO:
+        return new NIOFSDirectory(path);
+      case MMAP:
+        return openMMap(path);
+      default:
+        throw new IllegalArgumentException(
+          "Unknown index directory type: " + type);
+    }
+  }
+
+  private static Directory openMMap(Path path) throws IOException {
+    Set<String> preload = new HashSet<>(
+      Arrays.asList(C.Serve.indexPreload()));
+    MMapDirectory mapped = new MMapDirectory(path);
+    Directory directory = mapped;
+    if (!preload.isEmpty()) {
+      MMapDirectory preloaded = new MMapDirectory(path);
+      preloaded.setPreload(true);
+      directory = new FileSwitchDirectory(preload, preloaded, mapped, true);
+    }
+    long mappedBytes = 0;
+    long preloadedBytes = 0;
+    for (String file : directory.listAll()) {
+      long length = directory.fileLength(file);
+      mappedBytes += length;
+      if (preload.contains(FileSwitchDirectory.getExtension(file))) {
+        preloadedBytes += length;
+      }
+    }
+    log.log(Level.INFO, "Memory-mapped index of " + mappedBytes / MEGABYTE +
+      "MB, preloading " + preloadedBytes / MEGABYTE + "MB (" + preload + ").");
+    return directory;
+  }
+}
@@ -0,0 +1,173 @@
+package access;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An {@link IndexSearcher} that searches groups of segments (slices)
+ * concurrently on an {@link Executor} and measures how much parallelism each
+ * query actually got: the time spent searching all slices divided by the
+ * wall-clock time of the query.
+ */
+public class ParallelIndexSearcher extends IndexSearcher {
+  private static final Logger log =
+    Logger.getLogger(ParallelIndexSearcher.class.getName());
+
+  // Running totals over all queries
+  private static final AtomicLong queries = new AtomicLong();
+  private static final AtomicLong sliceNanos = new AtomicLong();
+  private static final AtomicLong wallNanos = new AtomicLong();
+
+  /**
+   * Statistics of the query a collector belongs to
+   */
+  private final Map<Collector, QueryStatistics> statistics =
+    new ConcurrentHashMap<>();
+
+  /**
+   * @param reader   to be searched
+   * @param executor to search the slices on, null to search serially
+   */
+  public ParallelIndexSearcher(IndexReader reader, Executor executor) {
+    super(reader, executor);
+  }
+
+  /**
+   * Group the segments into slices. Segments are added to a slice until it
+   * holds more than <i>serve.search.sliceDocs</i> documents or
+   * <i>serve.search.sliceSegments</i> segments, so large segments are
+   * searched on their own and small ones are batched. Slices consist of
+   * consecutive segments: hits with equal scores are merged in slice order,
+   * which then agrees with the document order that {@link
+   * IndexSearcher#searchAfter} relies on. This method is called by the
+   * constructor of {@link IndexSearcher}, so it must not depend on instance
+   * fields.
+   *
+   * @param leaves segments of the index
+   * @return slices
+   */
+  @Override
+  protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+    int maxDocs = C.Serve.sliceDocs();
+    int maxSegments = C.Serve.sliceSegments();
+    List<LeafSlice> slices = new ArrayList<>();
+    List<LeafReaderContext> group = new ArrayList<>();
+    long docs = 0;
+    for (LeafReaderContext leaf : leaves) {
+      group.add(leaf);
+      docs += leaf.reader().maxDoc();
+      if (docs > maxDocs || group.size() >= maxSegments) {
+        slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+        group.clear();
+        docs = 0;
+      }
+    }
+    if (!group.isEmpty()) {
+      slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+    }
+    return slices.toArray(new LeafSlice[0]);
+  }
+
+  @Override
+  public <C extends Collector, T> T search(Query query,
+                                           CollectorManager<C, T> manager)
+    throws IOException {
+    QueryStatistics queryStatistics = new QueryStatistics();
+    CollectorManager<C, T> measuringManager = new CollectorManager<C, T>() {
+      @Override
+      public C newCollector() throws IOException {
+        C collector = manager.newCollector();
+        queryStatistics.collectors.add(collector);
+        statistics.put(collector, queryStatistics);
+        return collector;
+      }
+
+      @Override
+      public T reduce(Collection<C> collectors) throws IOException {
+        return manager.reduce(collectors);
+      }
+    };
+    long start = System.nanoTime();
+    try {
+      return super.search(query, measuringManager);
+    } finally {
+      queryStatistics.collectors.forEach(statistics::remove);
+      report(queryStatistics, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  protected void search(List<LeafReaderContext> leaves, Weight weight,
+                        Collector collector) throws IOException {
+    long start = System.nanoTime();
+    try {
+      super.search(leaves, weight, collector);
+    } finally {
+      QueryStatistics queryStatistics = statistics.get(collector);
+      if (queryStatistics != null) {
+        queryStatistics.slices.incrementAndGet();
+        queryStatistics.sliceNanos.addAndGet(System.nanoTime() - start);
+        queryStatistics.threads.add(Thread.currentThread().getId());
+      }
+    }
+  }
+
+  private static void report(QueryStatistics queryStatistics, long nanos) {
+    queries.incrementAndGet();
+    sliceNanos.addAndGet(queryStatistics.sliceNanos.get());
+    wallNanos.addAndGet(nanos);
+    log.log(Level.INFO, String.format("Searched %d slices on %d threads, " +
+        "parallelism %.2f.", queryStatistics.slices.get(),
+      queryStatistics.threads.size(),
+      parallelism(queryStatistics.sliceNanos.get(), nanos)));
+  }
+
+  private static double parallelism(long sliceNanos, long wallNanos) {
+    return wallNanos > 0 ? (double) sliceNanos / wallNanos : 0.0;
+  }
+
+  /**
+   * @return number of queries that were measured
+   */
+  public static long queries() {
+    return queries.get();
+  }
+
+  /**
+   * @return average parallelism over all measured queries
+   */
+  public static double averageParallelism() {
+    return parallelism(sliceNanos.get(), wallNanos.get());
+  }
+
+  /**
+   * Statistics of a single query
+   */
+  private static class QueryStatistics {
+    private final List<Collector> collectors =
+      Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger slices = new AtomicInteger();
+    private final AtomicLong sliceNanos = new AtomicLong();
+    private final Set<Long> threads = ConcurrentHashMap.newKeySet();
+  }
+}
@@ -0,0 +1,182 @@
+package access;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import searcher.util.ResultCache;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class represents a single instance of a Lucene {@link
+ * SearcherManager}. The manager hands out reference counted {@link
+ * IndexSearcher}s and polls the index for new commits, such that a rebuilt
+ * index becomes searchable without a redeploy. Searches that acquired a
+ * searcher before a refresh keep their point-in-time view until they release
+ * it.
+ * <p>
+ * The instance is created at context startup by {@link #create()}. Once it is
+ * published, {@link #getInstance()} reads it without locking. The threads
+ * that search the segments are resized when the configuration is reloaded.
+ */
+public class SearcherManagerSingleton {
+  private static final Logger log =
+    Logger.getLogger(SearcherManagerSingleton.class.getName());
+
+  private static volatile SearcherManager searcherManager = null;
+  private static ScheduledExecutorService refresher = null;
+  private static ThreadPoolExecutor searchExecutor = null;
+  private static final Runnable resizer =
+    SearcherManagerSingleton::resizeSearchExecutor;
+
+  private SearcherManagerSingleton() {}
+
+  /**
+   * Open the index, warm the first searcher and start refreshing unless
+   * <i>serve.index.refreshInterval</i> is 0. Does nothing if the instance
+   * already exists.
+   *
+   * @throws IOException in case opening the index failed
+   */
+  public static synchronized void create() throws IOException {
+    if (searcherManager != null) {
+      return;
+    }
+    Directory directory = IndexDirectory.open(Paths.get(C.FilePath.index()));
+    int searchThreads = C.Serve.searchThreads();
+    if (searchThreads > 0) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      searchExecutor = new ThreadPoolExecutor(searchThreads, searchThreads,
+        0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable,
+            "index-search-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      C.addReloadListener(resizer);
+    }
+    SearcherManager manager = new SearcherManager(directory,
+      new WarmingSearcherFactory(searchExecutor));
+    manager.addListener(new ReferenceManager.RefreshListener() {
+      @Override
+      public void beforeRefresh() {}
+
+      @Override
+      public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+          log.log(Level.INFO, "Opened a new point-in-time view of the index.");
+          ResultCache.getInstance().invalidateAll();
+        }
+      }
+    });
+    long interval = C.Serve.refreshInterval();
+    if (interval > 0) {
+      refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-refresher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      refresher.scheduleWithFixedDelay(() -> refresh(manager), interval,
+        interval, TimeUnit.SECONDS);
+    }
+    searcherManager = manager;
+  }
+
+  /**
+   * Return the single instance of the {@link SearcherManager}. If it was not
+   * created at startup (e.g. outside a servlet container), it is created on
+   * first use.
+   *
+   * @return {@link SearcherManager}
+   * @throws IOException in case opening the index failed
+   */
+  public static SearcherManager getInstance() throws IOException {
+    SearcherManager instance = searcherManager;
+    if (instance == null) {
+      create();
+      instance = searcherManager;
+    }
+    return instance;
+  }
+
+  /**
+   * Resize the threads that search the segments to the current
+   * configuration. Threads above a smaller size exit once their current task
+   * is done. Switching between concurrent and single-threaded searches needs
+   * a restart.
+   */
+  private static synchronized void resizeSearchExecutor() {
+    if (searchExecutor == null) {
+      return;
+    }
+    int threads = C.Serve.searchThreads();
+    int current = searchExecutor.getCorePoolSize();
+    if (threads <= 0) {
+      log.log(Level.WARNING, "Disabling the search threads needs a restart.");
+    } else if (threads > current) {
+      searchExecutor.setMaximumPoolSize(threads);
+      searchExecutor.setCorePoolSize(threads);
+    } else if (threads < current) {
+      searchExecutor.setCorePoolSize(threads);
+      searchExecutor.setMaximumPoolSize(threads);
+    }
+    if (threads > 0 && threads != current) {
+      log.log(Level.INFO, "Resized the search threads to " + threads + ".");
+    }
+  }
+
+  /**
+   * Swap in a reopened reader if a new commit of the index exists.
+   *
+   * @param manager to be refreshed
+   */
+  private static void refresh(SearcherManager manager) {
+    try {
+      manager.maybeRefresh();
+    } catch (IOException exception) {
+      log.log(Level.WARNING, "Refreshing the index failed: " +
+        exception.getMessage());
+    }
+  }
+
+  /**
+   * Stop refreshing, close the manager and delete the instance. Searchers
+   * that are still acquired stay usable until they are released.
+   *
+   * @throws IOException in case the {@link SearcherManager} could not be
+   *                     closed
+   */
+  public static synchronized void deleteInstance() throws IOException {
+    if (searcherManager != null) {
+      if (refresher != null) {
+        // Let a running refresh finish before the manager is closed
+        refresher.shutdown();
+        try {
+          refresher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      searcherManager.close();
+      if (searchExecutor != null) {
+        C.removeReloadListener(resizer);
+        searchExecutor.shutdown();
+      }
+      searcherManager = null;
+      refresher = null;
+      searchExecutor = null;
+    }
+  }
+}
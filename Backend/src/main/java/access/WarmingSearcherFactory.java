@@ -0,0 +1,95 @@
+package access;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherFactory;
+import searcher.util.FilterCache;
+import searcher.util.LuceneQueryBuilder;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Create {@link ParallelIndexSearcher}s that cache their filters in the
+ * {@link FilterCache} and run the configured warm-up queries on them before
+ * they are published. As the {@link
+ * org.apache.lucene.search.SearcherManager} calls the factory for every
+ * reopened reader, the first user requests after a refresh do not pay for
+ * loading the new segments.
+ */
+public class WarmingSearcherFactory extends SearcherFactory {
+  private static final Logger log =
+    Logger.getLogger(WarmingSearcherFactory.class.getName());
+
+  private final Executor executor;
+
+  /**
+   * @param executor to search the segments on, null to search serially
+   */
+  public WarmingSearcherFactory(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public IndexSearcher newSearcher(IndexReader reader,
+                                   IndexReader previousReader) {
+    IndexSearcher indexSearcher = new ParallelIndexSearcher(reader, executor);
+    FilterCache.getInstance().configure(indexSearcher);
+    warm(indexSearcher);
+    return indexSearcher;
+  }
+
+  /**
+   * Run each warm-up query once.
+   *
+   * @param indexSearcher to be warmed
+   */
+  private static void warm(IndexSearcher indexSearcher) {
+    String[] queries = C.Serve.warmupQueries();
+    if (queries.length == 0) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    for (String queryString : queries) {
+      try {
+        Query query = new LuceneQueryBuilder(parameters(queryString)).build();
+        indexSearcher.search(query, C.Serve.numberDocuments());
+      } catch (IOException | RuntimeException exception) {
+        log.log(Level.WARNING, "Warm-up query failed: " + queryString + ": " +
+          exception.getMessage());
+      }
+    }
+    log.log(Level.INFO, "Ran " + queries.length + " warm-up queries in " +
+      (System.currentTimeMillis() - start) + "ms.");
+  }
+
+  /**
+   * Parse a URL query string like <i>primary=cholera&amp;language=en</i> into
+   * a parameter map.
+   *
+   * @param queryString URL query string
+   * @return parameter map
+   * @throws UnsupportedEncodingException never, UTF-8 is always supported
+   */
+  private static Map<String, String[]> parameters(String queryString)
+    throws UnsupportedEncodingException {
+    Map<String, String[]> parameters = new HashMap<>();
+    for (String parameter : queryString.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator > 0) {
+        parameters.put(parameter.substring(0, separator), new String[]{
+          URLDecoder.decode(parameter.substring(separator + 1),
+            C.ContentEncoding.UTF8)});
+      }
+    }
+    return parameters;
+  }
+}
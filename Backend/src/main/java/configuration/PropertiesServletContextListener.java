@@ -1,5 +1,6 @@
 package configuration;
 
+import access.SearcherManagerSingleton;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 
 import javax.servlet.ServletContextEvent;
@@ -15,11 +16,20 @@ public class PropertiesServletContextListener
       String config = sce.getServletContext().getRealPath(
           "/WEB-INF/classes/config.properties");
       C.create(config);
+      C.watch(C.Serve.configReloadInterval());
+      SearcherManagerSingleton.create();
     } catch (IOException exception) {
       exception.printStackTrace();
     }
   }
 
   @Override
-  public void contextDestroyed(ServletContextEvent sce) { }
+  public void contextDestroyed(ServletContextEvent sce) {
+    C.stopWatching();
+    try {
+      SearcherManagerSingleton.deleteInstance();
+    } catch (IOException exception) {
+      exception.printStackTrace();
+    }
+  }
 }
@@ -1,92 +1,157 @@
 package searcher;
 
-import access.IndexReaderSingleton;
-import access.IndexSearcherSingleton;
 import com.google.common.base.Stopwatch;
 import de.mo42.JSONStringBuilder;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import searcher.util.InvalidParameterException;
+import searcher.util.StoredRecords;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+/**
+ * Compute the documents to be visualized. The response is streamed: the
+ * visualization records are written to the response as they are read, a
+ * window of hits at a time, and the basic information follows them. The
+ * memory of a request does not depend on the number of documents served.
+ */
 public class DocumentSearcher extends Searcher {
-  private IndexSearcher indexSearcher;
-  private IndexReader indexReader;
-  private JSONStringBuilder json;
+
+  /**
+   * Number of hits whose visualization records are read at once
+   */
+  private static final int WINDOW = 1024;
+
   private Stopwatch stopwatch;
 
-  public DocumentSearcher() throws IOException {
-    indexSearcher = IndexSearcherSingleton.getInstance();
-    indexReader = IndexReaderSingleton.getInstance();
+  public DocumentSearcher() {
   }
 
   @Override public String search(Map<String, String[]> queryMap) {
-    Query query = query(queryMap);
+    StringWriter stringWriter = new StringWriter();
+    search(queryMap, new PrintWriter(stringWriter));
+    return stringWriter.toString();
+  }
+
+  @Override
+  public void search(Map<String, String[]> queryMap, PrintWriter writer) {
+    Query query;
+    try {
+      query = query(queryMap);
+    } catch (InvalidParameterException exception) {
+      writer.write(handleInvalidParameter(exception.parameter(),
+        exception.value()));
+      return;
+    }
     log.log(Level.INFO, "Query: " + query.toString());
-    return search(query);
+    search(query, cacheKey(queryMap), writer);
   }
 
   protected String search(Query query) {
+    StringWriter stringWriter = new StringWriter();
+    search(query, null, new PrintWriter(stringWriter));
+    return stringWriter.toString();
+  }
+
+  /**
+   * @param query    to be searched
+   * @param cacheKey canonical form of the query parameters, null to bypass
+   *                 the hit cache
+   * @param writer   to write the JSON response to
+   */
+  private void search(Query query, String cacheKey, PrintWriter writer) {
     stopwatch = Stopwatch.createStarted();
+    IndexSearcher indexSearcher;
+    try {
+      indexSearcher = acquire();
+    } catch (IOException exception) {
+      writer.write(handleException(exception));
+      return;
+    }
+    try {
+      search(indexSearcher, query, cacheKey, writer);
+    } finally {
+      release(indexSearcher);
+    }
+  }
+
+  private void search(IndexSearcher indexSearcher, Query query,
+                      String cacheKey, PrintWriter writer) {
     TopDocs docs;
+    StoredRecords records;
     try {
-      docs = indexSearcher.search(query, numberDocuments);
+      docs = topDocs(indexSearcher, query, numberDocuments, cacheKey);
+      records = new StoredRecords(indexSearcher.getIndexReader());
     } catch (IOException exception) {
-      return handleException(exception);
+      writer.write(handleException(exception));
+      return;
     }
     log.log(Level.INFO, "Found: " + docs.scoreDocs.length + " documents.");
-    json = new JSONStringBuilder();
+    JSONStringBuilder json = new JSONStringBuilder();
     json.startJSON();
-    addDocuments(docs);
+    json.startJSONArray(C.JSONFieldNames.DOCUMENTS);
+    writer.write(json.toString());
+    writeDocuments(indexSearcher.getIndexReader(), docs, records, writer);
+    json = new JSONStringBuilder();
+    json.endJSONArray();
     json.separate();
-    addBasicInformation(docs.totalHits.value, docs.scoreDocs.length,
+    addBasicInformation(json, docs.totalHits.value, docs.scoreDocs.length,
       query.toString());
     json.endJSON();
-    return json.toString();
+    writer.write(json.toString());
   }
 
   /**
-   * Add information about the documents to the response.
+   * Write the information about the documents of the response. Only the
+   * visualization records are read, the stored text data is not touched.
+   * Writing stops early if the client disconnects.
    *
-   * @param docs found searching the index
+   * @param indexReader to load the documents from
+   * @param docs        found searching the index
+   * @param records     decoding the visualization records
+   * @param writer      to write the documents to
    */
-  private void addDocuments(TopDocs docs) {
-    json.startJSONArray(C.JSONFieldNames.DOCUMENTS);
-    String delimiter = JSONStringBuilder.NOT_DELIMIT;
-    for (ScoreDoc doc : docs.scoreDocs) {
-      Document document;
+  private void writeDocuments(IndexReader indexReader, TopDocs docs,
+                              StoredRecords records, PrintWriter writer) {
+    ScoreDoc[] hits = docs.scoreDocs;
+    int written = 0;
+    for (int from = 0; from < hits.length; from += WINDOW) {
+      int to = Math.min(from + WINDOW, hits.length);
       try {
-        document = indexReader.document(doc.doc);
+        written += records.writeVisualizations(indexReader, hits, from, to,
+          written > 0, writer);
       } catch (IOException exception) {
         log.log(Level.WARNING, "Exception: " + exception.getMessage());
-        continue;
+        return;
+      }
+      if (writer.checkError()) {
+        log.log(Level.INFO, "Client disconnected, response stopped after " +
+          written + " of " + hits.length + " documents.");
+        return;
       }
-      json.append(delimiter);
-      String d = document.getField(C.FieldNames.VISUALIZATION).stringValue();
-      json.append(d);
-      delimiter = JSONStringBuilder.DELIMIT;
     }
-    json.endJSONArray();
   }
 
   /**
    * Add basic information like number of hits, response time and topic terms to
    * the response.
    *
+   * @param json       to add the information to
    * @param totalHits  total number of hits
    * @param hitsServed number of hits in the response
    * @param query      query string leading to this response
    */
-  private void addBasicInformation(long totalHits, int hitsServed,
-                                   String query) {
+  private void addBasicInformation(JSONStringBuilder json, long totalHits,
+                                   int hitsServed, String query) {
     json.startJSON(C.JSONFieldNames.BASIC_INFORMATION);
     json.put(C.JSONFieldNames.QUERY, query);
     json.separate();
@@ -1,73 +1,308 @@
 package searcher;
 
-import access.IndexSearcherSingleton;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import de.uni_stuttgart.searchfilter.common.record.RecordDecoder;
+import de.uni_stuttgart.searchfilter.common.record.RecordField;
 import org.json.JSONObject;
-import searcher.util.CSVStringBuilder;
+import searcher.util.CSVStreamWriter;
+import searcher.util.DocValuesColumns;
+import searcher.util.HitLoader;
+import searcher.util.InvalidParameterException;
+import searcher.util.StoredFieldSelector;
+import searcher.util.StoredRecords;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 
 public class ExportSearcher extends Searcher {
 
-  private IndexSearcher indexSearcher;
+  private static final String FIELDS = "fields";
 
-  public ExportSearcher() throws IOException {
-    indexSearcher = IndexSearcherSingleton.getInstance();
+  /**
+   * Columns exported if the request does not select any
+   */
+  private static final String[] DEFAULT_COLUMNS = {C.JSONFieldNames.TEXT,
+    C.JSONFieldNames.DATE, C.JSONFieldNames.PUBLISHER,
+    C.JSONFieldNames.PLACE_OF_PUBLICATION, C.JSONFieldNames.LATITUDE,
+    C.JSONFieldNames.LONGITUDE, C.JSONFieldNames.LINK,
+    C.JSONFieldNames.LANGUAGE, C.JSONFieldNames.CORPUS,
+    C.JSONFieldNames.CLUSTER, C.JSONFieldNames.TITLE};
+
+  /**
+   * Columns that are read from the stored text data
+   */
+  private static final List<String> STORED_COLUMNS = Arrays.asList(
+    C.JSONFieldNames.TEXT, C.JSONFieldNames.PUBLISHER,
+    C.JSONFieldNames.PLACE_OF_PUBLICATION, C.JSONFieldNames.LINK,
+    C.JSONFieldNames.TITLE);
+
+  /**
+   * Columns that are read from doc values and their index field names
+   */
+  private static final Map<String, String> DOC_VALUES_COLUMNS =
+    new HashMap<>();
+
+  static {
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.ID, C.FieldNames.ID);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.DATE, C.FieldNames.DAY);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.TEXT_LENGTH, C.FieldNames.LENGTH);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.LATITUDE, C.FieldNames.LATITUDE);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.LONGITUDE, C.FieldNames.LONGITUDE);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.LANGUAGE, C.FieldNames.LANGUAGE);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.CORPUS, C.FieldNames.CORPUS);
+    DOC_VALUES_COLUMNS.put(C.JSONFieldNames.CLUSTER, C.FieldNames.CLUSTER);
+  }
+
+  /**
+   * Number of hits whose doc values are read at once
+   */
+  private static final int WINDOW = 4096;
+
+  /**
+   * Number of hits whose text data is loaded at once, the decoded records of
+   * a window are kept until they are written
+   */
+  private static final int STORED_WINDOW = 512;
+
+  public ExportSearcher() {
   }
 
   @Override
   public String search(Map<String, String[]> queryMap) {
-    Query query = query(queryMap);
+    StringWriter stringWriter = new StringWriter();
+    search(queryMap, new PrintWriter(stringWriter));
+    return stringWriter.toString();
+  }
+
+  @Override
+  public void search(Map<String, String[]> queryMap, PrintWriter writer) {
+    String[] columns = DEFAULT_COLUMNS;
+    if (queryMap.containsKey(FIELDS)) {
+      columns = queryMap.get(FIELDS)[0].split(",");
+      for (String column : columns) {
+        if (!STORED_COLUMNS.contains(column) &&
+          !DOC_VALUES_COLUMNS.containsKey(column)) {
+          writer.write(handleInvalidParameter(FIELDS, column));
+          return;
+        }
+      }
+    }
+    Query query;
+    try {
+      query = query(queryMap);
+    } catch (InvalidParameterException exception) {
+      writer.write(handleInvalidParameter(exception.parameter(),
+        exception.value()));
+      return;
+    }
     log.log(Level.INFO, "Query: " + query.toString());
-    return search(query);
+    search(query, columns, writer);
   }
 
   public String search(Query query) {
+    StringWriter stringWriter = new StringWriter();
+    search(query, DEFAULT_COLUMNS, new PrintWriter(stringWriter));
+    return stringWriter.toString();
+  }
+
+  /**
+   * Write the CSV export of all documents matching the query. Each record is
+   * written as soon as its values are loaded and the output is flushed in
+   * chunks. The export stops early if the client disconnects. Columns backed
+   * by doc values are read column-wise, the stored text data is only loaded
+   * if a column requires it or a date is malformed.
+   *
+   * @param query   to be exported
+   * @param columns to be exported
+   * @param writer  to write the CSV records to
+   */
+  public void search(Query query, String[] columns, PrintWriter writer) {
+    IndexSearcher indexSearcher;
+    try {
+      indexSearcher = acquire();
+    } catch (IOException exception) {
+      writer.write(handleException(exception));
+      return;
+    }
+    try {
+      search(indexSearcher, query, columns, writer);
+    } finally {
+      release(indexSearcher);
+    }
+  }
+
+  private void search(IndexSearcher indexSearcher, Query query,
+                      String[] columns, PrintWriter writer) {
     TopDocs docs;
     try {
       docs = indexSearcher.search(query, C.Serve.numberExport());
     } catch (IOException exception) {
-      return handleException(exception);
+      writer.write(handleException(exception));
+      return;
+    }
+    StoredRecords records;
+    try {
+      records = new StoredRecords(indexSearcher.getIndexReader());
+    } catch (IOException exception) {
+      writer.write(handleException(exception));
+      return;
+    }
+    List<String> docValuesFields = new ArrayList<>();
+    int[] docValuesColumn = new int[columns.length];
+    RecordField[] storedColumn = new RecordField[columns.length];
+    boolean loadStored = false;
+    int dateColumn = -1;
+    for (int i = 0; i < columns.length; ++i) {
+      if (DOC_VALUES_COLUMNS.containsKey(columns[i])) {
+        docValuesColumn[i] = docValuesFields.size();
+        docValuesFields.add(DOC_VALUES_COLUMNS.get(columns[i]));
+        if (columns[i].equals(C.JSONFieldNames.DATE)) {
+          // A malformed date has no doc values, it is only stored
+          dateColumn = i;
+          storedColumn[i] = RecordField.DATE;
+        }
+      } else {
+        docValuesColumn[i] = -1;
+        storedColumn[i] = RecordField.forJSONName(columns[i]);
+        loadStored = true;
+      }
     }
-    CSVStringBuilder csvStringBuilder = new CSVStringBuilder();
-    // TODO Use C file for literals
-    csvStringBuilder.addRecord("text", "date", "publisher",
-        "placeOfPublication", "latitude", "longitude", "link", "language",
-        "corpus", "cluster", "title");
-    for (int i = 0; i < docs.scoreDocs.length; ++i) {
-      ScoreDoc doc = docs.scoreDocs[i];
-      Document document;
+    DocValuesColumns docValuesColumns = new DocValuesColumns(
+      indexSearcher.getIndexReader(), docValuesFields.toArray(new String[0]));
+    HitLoader loader =
+      new HitLoader(indexSearcher.getIndexReader(), C.FieldNames.TEXT_DATA);
+    int window = loadStored ? STORED_WINDOW : WINDOW;
+    CSVStreamWriter csvStreamWriter =
+      new CSVStreamWriter(writer, C.Serve.exportFlushRecords());
+    csvStreamWriter.addRecord(columns);
+    String[] record = new String[columns.length];
+    for (int from = 0; from < docs.scoreDocs.length; from += window) {
+      int to = Math.min(from + window, docs.scoreDocs.length);
+      String[][] values;
+      String[][] stored = new String[to - from][];
       try {
-        document = indexSearcher.doc(doc.doc);
+        values = docValuesColumns.read(docs.scoreDocs, from, to);
+        if (loadStored) {
+          // The text data is loaded in doc id order, such that every
+          // compressed block is decompressed once per window
+          int first = from;
+          loader.load(docs.scoreDocs, from, to, (hit, document) ->
+            stored[hit - first] = storedValues(records, document, columns,
+              storedColumn));
+        } else if (dateColumn >= 0) {
+          loadMissingDates(loader, records, docs.scoreDocs, from, values,
+            docValuesColumn[dateColumn], columns, storedColumn, stored);
+        }
       } catch (IOException exception) {
         log.log(Level.WARNING, "Exception: " + exception.getMessage());
+        break;
+      }
+      for (int i = from; i < to; ++i) {
+        for (int column = 0; column < columns.length; ++column) {
+          String value;
+          if (docValuesColumn[column] >= 0) {
+            value = values[i - from][docValuesColumn[column]];
+            if (value == null && stored[i - from] != null) {
+              value = stored[i - from][column];
+            }
+          } else {
+            value = stored[i - from][column];
+          }
+          record[column] = value != null ? value : "";
+        }
+        if (!csvStreamWriter.addRecord(record)) {
+          log.log(Level.INFO, "Client disconnected, export stopped after " +
+            csvStreamWriter.writtenRecords() + " of " + docs.scoreDocs.length +
+            " records.");
+          return;
+        }
+      }
+    }
+    csvStreamWriter.flush();
+  }
+
+  /**
+   * Load the stored columns of the hits of a window that have no date doc
+   * values, such that their malformed dates are exported as they are stored.
+   *
+   * @param loader       of the text data
+   * @param records      decoding the text data
+   * @param hits         all hits
+   * @param from         index of the first hit of the window
+   * @param values       doc values of the window
+   * @param dateValues   index of the date in the doc values
+   * @param columns      to be exported
+   * @param storedColumn field of each stored column, null for doc values
+   * @param stored       receives the stored columns of the window
+   * @throws IOException in case loading the text data failed
+   */
+  private static void loadMissingDates(HitLoader loader,
+                                       StoredRecords records,
+                                       ScoreDoc[] hits, int from,
+                                       String[][] values, int dateValues,
+                                       String[] columns,
+                                       RecordField[] storedColumn,
+                                       String[][] stored)
+    throws IOException {
+    int[] missing = new int[values.length];
+    int count = 0;
+    for (int i = 0; i < values.length; ++i) {
+      if (values[i][dateValues] == null) {
+        missing[count++] = i;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+    ScoreDoc[] missingHits = new ScoreDoc[count];
+    for (int i = 0; i < count; ++i) {
+      missingHits[i] = hits[from + missing[i]];
+    }
+    loader.load(missingHits, 0, count, (hit, document) ->
+      stored[missing[hit]] = storedValues(records, document, columns,
+        storedColumn));
+  }
+
+  /**
+   * Read the stored columns of a record from its text data.
+   *
+   * @param records      decoding the text data
+   * @param document     loaded with the text data
+   * @param columns      to be exported
+   * @param storedColumn field of each stored column, null for doc values
+   * @return values of the stored columns, null for the other columns
+   */
+  private static String[] storedValues(StoredRecords records,
+                                       StoredFieldSelector document,
+                                       String[] columns,
+                                       RecordField[] storedColumn) {
+    String[] values = new String[columns.length];
+    RecordDecoder textData = records.decode(document, C.FieldNames.TEXT_DATA);
+    JSONObject textDataJSON = null;
+    if (textData == null) {
+      // Index written before the stored records were introduced
+      textDataJSON =
+        new JSONObject(document.stringValue(C.FieldNames.TEXT_DATA));
+    }
+    for (int column = 0; column < columns.length; ++column) {
+      if (storedColumn[column] == null) {
         continue;
       }
-      String textData = document.getField(C.FieldNames.TEXT_DATA).stringValue();
-      JSONObject textDataJSON = new JSONObject(textData);
-      String text = textDataJSON.getString(C.JSONFieldNames.TEXT);
-      String date = textDataJSON.getString(C.JSONFieldNames.DATE);
-      String publisher = textDataJSON.getString(C.JSONFieldNames.PUBLISHER);
-      String placeOfPublication = textDataJSON.getString(
-          C.JSONFieldNames.PLACE_OF_PUBLICATION);
-      Double latitude = textDataJSON.getDouble(C.JSONFieldNames.LATITUDE);
-      Double longitude = textDataJSON.getDouble(C.JSONFieldNames.LONGITUDE);
-      String link = textDataJSON.getString(C.JSONFieldNames.LINK);
-      String language = textDataJSON.getString(C.JSONFieldNames.LANGUAGE);
-      String corpus = textDataJSON.getString(C.JSONFieldNames.CORPUS);
-      Long cluster = textDataJSON.getLong(C.JSONFieldNames.CLUSTER);
-      String title = textDataJSON.getString(C.JSONFieldNames.TITLE);
-      csvStringBuilder.addRecord(text, date, publisher, placeOfPublication,
-          latitude.toString(), longitude.toString(), link, language, corpus,
-          cluster.toString(), title);
+      values[column] = textData != null ?
+        textData.format(storedColumn[column]) :
+        textDataJSON.optString(columns[column], null);
     }
-    return csvStringBuilder.toString();
+    return values;
   }
 }
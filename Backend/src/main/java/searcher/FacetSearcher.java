@@ -0,0 +1,143 @@
+package searcher;
+
+import com.google.common.base.Stopwatch;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import searcher.util.FacetCollector;
+import searcher.util.InvalidParameterException;
+import searcher.util.ResultCache;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Aggregate all hits of a query into the histograms of the dashboard views:
+ * documents per year, language, text length bucket, cluster and grid cell.
+ */
+public class FacetSearcher extends Searcher {
+
+  public FacetSearcher() {
+  }
+
+  @Override
+  public String search(Map<String, String[]> queryMap) {
+    Query query;
+    try {
+      query = query(queryMap);
+    } catch (InvalidParameterException exception) {
+      return handleInvalidParameter(exception.parameter(), exception.value());
+    }
+    log.log(Level.INFO, "Query: " + query.toString());
+    return search(query, cacheKey(queryMap));
+  }
+
+  public String search(Query query) {
+    return search(query, null);
+  }
+
+  /**
+   * @param query    to be aggregated
+   * @param cacheKey canonical form of the query parameters, null to bypass
+   *                 the result cache
+   * @return JSON string containing the response
+   */
+  private String search(Query query, String cacheKey) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    int lengthBucket = C.Serve.facetLengthBucket();
+    double gridSize = C.Serve.facetGridSize();
+    String response;
+    IndexSearcher indexSearcher = null;
+    try {
+      indexSearcher = acquire();
+      ResultCache cache = ResultCache.getInstance();
+      String key = ResultCache.key(indexSearcher.getIndexReader(), "facets",
+        cacheKey, lengthBucket + "/" + gridSize);
+      response = cache.getResponse(key);
+      if (response == null) {
+        FacetCollector collector = indexSearcher.search(query,
+          FacetCollector.manager(lengthBucket, gridSize));
+        log.log(Level.INFO,
+          "Aggregated: " + collector.totalHits() + " documents.");
+        response = render(query, collector, gridSize);
+        cache.putResponse(key, response);
+      }
+    } catch (IOException exception) {
+      return handleException(exception);
+    } finally {
+      if (indexSearcher != null) {
+        release(indexSearcher);
+      }
+    }
+    JSONObject json = new JSONObject(response);
+    json.getJSONObject(C.JSONFieldNames.BASIC_INFORMATION).put(
+      C.JSONFieldNames.COMPUTATION_TIME,
+      stopwatch.elapsed(TimeUnit.MILLISECONDS) + "ms");
+    return json.toString();
+  }
+
+  /**
+   * Render the counts of a collector, without the computation time.
+   *
+   * @param query     that was aggregated
+   * @param collector containing the counts
+   * @param gridSize  width and height of a grid cell in degrees
+   * @return JSON string
+   */
+  private static String render(Query query, FacetCollector collector,
+                               double gridSize) {
+    JSONObject json = new JSONObject();
+    json.put(C.JSONFieldNames.YEAR, counts(collector.years()));
+    json.put(C.JSONFieldNames.LANGUAGE, counts(collector.languages()));
+    json.put(C.JSONFieldNames.TEXT_LENGTH, counts(collector.lengths()));
+    json.put(C.JSONFieldNames.CLUSTER, counts(collector.clusters()));
+    json.put(C.JSONFieldNames.GRID, cells(collector));
+    json.put(C.JSONFieldNames.GRID_SIZE, gridSize);
+    JSONObject basicInformation = new JSONObject();
+    basicInformation.put(C.JSONFieldNames.QUERY, query.toString());
+    basicInformation.put(C.JSONFieldNames.TOTAL_HITS, collector.totalHits());
+    json.put(C.JSONFieldNames.BASIC_INFORMATION, basicInformation);
+    return json.toString();
+  }
+
+  /**
+   * Convert counts to an array of key/value objects.
+   *
+   * @param counts map from key to count
+   * @return JSON array
+   */
+  private static JSONArray counts(Map<?, Long> counts) {
+    JSONArray array = new JSONArray();
+    for (Map.Entry<?, Long> entry : counts.entrySet()) {
+      JSONObject element = new JSONObject();
+      element.put(C.JSONFieldNames.KEY, entry.getKey());
+      element.put(C.JSONFieldNames.VALUE, entry.getValue());
+      array.put(element);
+    }
+    return array;
+  }
+
+  /**
+   * Convert grid cell counts to an array of latitude/longitude/value objects.
+   *
+   * @param collector containing the grid cell counts
+   * @return JSON array
+   */
+  private static JSONArray cells(FacetCollector collector) {
+    JSONArray array = new JSONArray();
+    for (Map.Entry<Long, Long> entry : collector.cells().entrySet()) {
+      JSONObject element = new JSONObject();
+      element.put(C.JSONFieldNames.LATITUDE,
+        collector.cellLatitude(entry.getKey()));
+      element.put(C.JSONFieldNames.LONGITUDE,
+        collector.cellLongitude(entry.getKey()));
+      element.put(C.JSONFieldNames.VALUE, entry.getValue());
+      array.put(element);
+    }
+    return array;
+  }
+}
@@ -1,10 +1,13 @@
 package searcher;
 
-import access.IndexSearcherSingleton;
 import de.mo42.JSONStringBuilder;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.search.*;
+import searcher.util.HitLoader;
+import searcher.util.InvalidParameterException;
+import searcher.util.PageCursor;
+import searcher.util.ResultCache;
+import searcher.util.StoredRecords;
 
 import java.io.IOException;
 import java.util.Map;
@@ -12,67 +15,174 @@ import java.util.logging.Level;
 
 public class FullTextSearcher extends Searcher {
 
+  private static final String PAGE = "page";
+  private static final String CURSOR = "cursor";
+
   private int pageSize;
-  private IndexSearcher indexSearcher;
 
-  public FullTextSearcher() throws IOException {
-    indexSearcher = IndexSearcherSingleton.getInstance();
+  public FullTextSearcher() {
     pageSize = C.Serve.pageSize();
   }
 
   @Override
   public String search(Map<String, String[]> queryMap) {
-    Query query = query(queryMap);
+    Query query;
+    try {
+      query = query(queryMap);
+    } catch (InvalidParameterException exception) {
+      return handleInvalidParameter(exception.parameter(), exception.value());
+    }
     log.log(Level.INFO, "Query: " + query.toString());
-    int pageNumber = queryIndex(queryMap);
-    return search(query, pageNumber * pageSize);
+    PageCursor cursor = null;
+    if (queryMap.containsKey(CURSOR)) {
+      cursor = PageCursor.decode(queryMap.get(CURSOR)[0]);
+      if (cursor == null) {
+        log.log(Level.WARNING, "Ignoring malformed cursor: " +
+          queryMap.get(CURSOR)[0]);
+      }
+    }
+    int pageNumber;
+    try {
+      pageNumber = queryIndex(queryMap, cursor);
+    } catch (NumberFormatException exception) {
+      return handleInvalidParameter(PAGE, queryMap.get(PAGE)[0]);
+    }
+    return search(query, pageNumber, cursor, cacheKey(queryMap));
+  }
+
+  public String search(Query query, int pageNumber) {
+    return search(query, pageNumber, null, null);
   }
 
-  public String search(Query query, int hits) {
-    TopDocs docs;
+  /**
+   * @param query      to be searched
+   * @param pageNumber number of the requested page, starting at 1
+   * @param cursor     end of the previous page, null if unknown
+   * @param cacheKey   canonical form of the query parameters, null to bypass
+   *                   the result cache
+   * @return JSON string containing the response
+   */
+  private String search(Query query, int pageNumber, PageCursor cursor,
+                        String cacheKey) {
+    IndexSearcher indexSearcher;
     try {
-      docs = indexSearcher.search(query, hits);
+      indexSearcher = acquire();
     } catch (IOException exception) {
       return handleException(exception);
     }
-    log.log(Level.INFO, "Found: " + docs.scoreDocs.length + " documents.");
-    int start = docs.scoreDocs.length - pageSize - 1;
-    if (start < 0) {
-      start = 0;
+    try {
+      ResultCache cache = ResultCache.getInstance();
+      String key = ResultCache.key(indexSearcher.getIndexReader(), "text",
+        cacheKey, pageNumber * pageSize);
+      String response = cache.getResponse(key);
+      if (response == null) {
+        response = search(indexSearcher, query, pageNumber, cursor, cacheKey);
+        cache.putResponse(key, response);
+      }
+      return response;
+    } catch (IOException exception) {
+      return handleException(exception);
+    } finally {
+      release(indexSearcher);
     }
+  }
+
+  private String search(IndexSearcher indexSearcher, Query query,
+                        int pageNumber, PageCursor cursor, String cacheKey)
+    throws IOException {
+    ScoreDoc[] page = page(indexSearcher, query, pageNumber, cursor, cacheKey);
+    log.log(Level.INFO, "Found: " + page.length + " documents.");
+    StoredRecords records = new StoredRecords(indexSearcher.getIndexReader());
     JSONStringBuilder json = new JSONStringBuilder();
     json.startJSON();
     json.startJSONArray(C.JSONFieldNames.DOCUMENTS);
     String delimiter = JSONStringBuilder.NOT_DELIMIT;
-    for (int i = start; i < docs.scoreDocs.length; ++i) {
-      ScoreDoc doc = docs.scoreDocs[i];
-      Document document;
-      try {
-        document = indexSearcher.doc(doc.doc);
-      } catch (IOException exception) {
-        log.log(Level.WARNING, "Exception: " + exception.getMessage());
+    String[] documents = new String[page.length];
+    try {
+      new HitLoader(indexSearcher.getIndexReader(), C.FieldNames.TEXT_DATA)
+        .load(page, 0, page.length, (hit, document) -> documents[hit] =
+          records.json(document, C.FieldNames.TEXT_DATA));
+    } catch (IOException exception) {
+      log.log(Level.WARNING, "Exception: " + exception.getMessage());
+    }
+    for (String document : documents) {
+      if (document == null) {
         continue;
       }
       json.append(delimiter);
-      String d = document.getField(C.FieldNames.TEXT_DATA).stringValue();
-      json.append(d);
+      json.append(document);
       delimiter = JSONStringBuilder.DELIMIT;
     }
     json.endJSONArray();
+    if (page.length > 0) {
+      PageCursor next = new PageCursor(pageNumber, page[page.length - 1],
+        PageCursor.version(indexSearcher.getIndexReader()),
+        PageCursor.hash(cursorKey(query, cacheKey)));
+      json.separate();
+      json.put(C.JSONFieldNames.CURSOR, next.encode());
+    }
     json.endJSON();
     return json.toString();
 
   }
 
   /**
-   * Return the page number. If there is no page parameter, return '0' for the
-   * first page.
+   * Return the hits of a page. If the cursor ends the previous page and
+   * refers to the same query and reader, only the hits after it are
+   * collected. Otherwise all hits up to the end of the page are collected
+   * and the previous pages are skipped.
+   *
+   * @param indexSearcher to search with
+   * @param query         to be searched
+   * @param pageNumber    number of the requested page, starting at 1
+   * @param cursor        end of the previous page, null if unknown
+   * @param cacheKey      canonical form of the query parameters, null to
+   *                      bypass the result cache
+   * @return hits of the page
+   * @throws IOException in case searching failed
+   */
+  private ScoreDoc[] page(IndexSearcher indexSearcher, Query query,
+                          int pageNumber, PageCursor cursor, String cacheKey)
+    throws IOException {
+    if (cursor != null && cursor.page() == pageNumber - 1 &&
+      cursor.isValidFor(indexSearcher.getIndexReader(),
+        cursorKey(query, cacheKey))) {
+      return indexSearcher.searchAfter(cursor.last(), query, pageSize)
+        .scoreDocs;
+    }
+    TopDocs docs = topDocs(indexSearcher, query, pageNumber * pageSize,
+      cacheKey);
+    int start = (pageNumber - 1) * pageSize;
+    if (start >= docs.scoreDocs.length) {
+      return new ScoreDoc[0];
+    }
+    ScoreDoc[] page = new ScoreDoc[docs.scoreDocs.length - start];
+    System.arraycopy(docs.scoreDocs, start, page, 0, page.length);
+    return page;
+  }
+
+  /**
+   * @param query    to be searched
+   * @param cacheKey canonical form of the query parameters, may be null
+   * @return the key a cursor is bound to
+   */
+  private static String cursorKey(Query query, String cacheKey) {
+    return cacheKey != null ? cacheKey : query.toString();
+  }
+
+  /**
+   * Return the page number, starting at 1. If there is no page parameter,
+   * return the page following the cursor or the first page.
    *
    * @param queryParameterMap possibly containing a page parameter
+   * @param cursor            end of the previous page, null if unknown
    * @return page number
    */
-  private int queryIndex(final Map<String, String[]> queryParameterMap) {
-    final String page = queryParameterMap.get("page")[0];
-    return page != null ? Integer.parseInt(page) : 0;
+  private int queryIndex(final Map<String, String[]> queryParameterMap,
+                         PageCursor cursor) {
+    if (queryParameterMap.containsKey(PAGE)) {
+      return Math.max(1, Integer.parseInt(queryParameterMap.get(PAGE)[0]));
+    }
+    return cursor != null ? cursor.page() + 1 : 1;
   }
 }
@@ -1,11 +1,18 @@
 package searcher;
 
+import access.SearcherManagerSingleton;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
 import org.json.JSONObject;
+import searcher.util.InvalidParameterException;
 import searcher.util.LuceneQueryBuilder;
+import searcher.util.ResultCache;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,17 +41,89 @@ public abstract class Searcher {
    */
   public abstract String search(Map<String, String[]> queryMap);
 
+  /**
+   * Compute the response given a parameter map and write it to a writer.
+   * Searchers that are able to produce their response incrementally override
+   * this method, all others write the result of {@link #search(Map)}.
+   *
+   * @param queryMap of parameters (search terms)
+   * @param writer   to write the response to
+   */
+  public void search(Map<String, String[]> queryMap, PrintWriter writer) {
+    writer.write(search(queryMap));
+  }
+
+  /**
+   * Acquire the current {@link IndexSearcher}. It must be released with
+   * {@link #release(IndexSearcher)} once the response is computed.
+   *
+   * @return {@link IndexSearcher} of the current point-in-time view
+   * @throws IOException in case opening the index failed
+   */
+  IndexSearcher acquire() throws IOException {
+    return SearcherManagerSingleton.getInstance().acquire();
+  }
+
+  /**
+   * Release an {@link IndexSearcher} obtained by {@link #acquire()}.
+   *
+   * @param indexSearcher to be released
+   */
+  void release(IndexSearcher indexSearcher) {
+    try {
+      SearcherManagerSingleton.getInstance().release(indexSearcher);
+    } catch (IOException exception) {
+      log.log(Level.WARNING, "Exception: " + exception.getMessage());
+    }
+  }
+
   /**
    * Helper method to build a Lucene {@link Query}.
    *
    * @param queryMap of parameters (search terms)
    * @return {@link Query}
+   * @throws InvalidParameterException in case a parameter is malformed
    */
   protected Query query(Map<String, String[]> queryMap) {
     LuceneQueryBuilder luceneQueryBuilder = new LuceneQueryBuilder(queryMap);
     return luceneQueryBuilder.build();
   }
 
+  /**
+   * Helper method to compute the cache key of a parameter map.
+   *
+   * @param queryMap of parameters (search terms)
+   * @return canonical form of the parameters that determine the query
+   */
+  protected String cacheKey(Map<String, String[]> queryMap) {
+    return new LuceneQueryBuilder(queryMap).canonicalKey();
+  }
+
+  /**
+   * Return the top hits of a query, using the {@link ResultCache} if the
+   * query has a cache key.
+   *
+   * @param indexSearcher to search with
+   * @param query         to be searched
+   * @param hits          maximum number of hits
+   * @param cacheKey      canonical form of the query parameters, null to
+   *                      bypass the cache
+   * @return top hits
+   * @throws IOException in case searching failed
+   */
+  TopDocs topDocs(IndexSearcher indexSearcher, Query query, int hits,
+                  String cacheKey) throws IOException {
+    ResultCache cache = ResultCache.getInstance();
+    String key = ResultCache.key(indexSearcher.getIndexReader(), "hits",
+      cacheKey, hits);
+    TopDocs docs = cache.getHits(key);
+    if (docs == null) {
+      docs = indexSearcher.search(query, hits);
+      cache.putHits(key, docs);
+    }
+    return docs;
+  }
+
   /**
    * Return a JSON containing information about the exception.
    *
@@ -66,6 +145,14 @@ public abstract class Searcher {
     return json.toString();
   }
 
+  String handleInvalidParameter(String parameter, String value) {
+    log.log(Level.WARNING, "Invalid URL parameter: " + parameter + "=" + value);
+    JSONObject json = new JSONObject();
+    json.put(C.JSONFieldNames.PARSE_ERROR,
+      "Invalid URL parameter: " + parameter + "=" + value);
+    return json.toString();
+  }
+
   /**
    * Given the ID  of a document, build a query that finds the document.
    *
@@ -0,0 +1,89 @@
+package searcher;
+
+import access.AdmissionControl;
+import access.ParallelIndexSearcher;
+import com.google.common.cache.CacheStats;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.json.JSONObject;
+import searcher.util.FilterCache;
+import searcher.util.FuzzyExpansionCache;
+import searcher.util.ResultCache;
+
+import java.util.Map;
+
+/**
+ * Report runtime statistics of the backend, like the hit and miss counters
+ * of the result, fuzzy expansion and filter caches and the queues of the
+ * admission control. The parameters are ignored.
+ */
+public class StatsSearcher extends Searcher {
+
+  public StatsSearcher() {
+  }
+
+  @Override
+  public String search(Map<String, String[]> queryMap) {
+    ResultCache cache = ResultCache.getInstance();
+    JSONObject resultCache = new JSONObject();
+    resultCache.put(C.JSONFieldNames.HITS,
+      cacheStatistics(cache.hitStats(), cache.hitSize()));
+    resultCache.put(C.JSONFieldNames.RESPONSES,
+      cacheStatistics(cache.responseStats(), cache.responseSize()));
+    JSONObject fuzzyExpansions = new JSONObject();
+    fuzzyExpansions.put(C.JSONFieldNames.HIT_COUNT,
+      FuzzyExpansionCache.hitCount());
+    fuzzyExpansions.put(C.JSONFieldNames.MISS_COUNT,
+      FuzzyExpansionCache.missCount());
+    fuzzyExpansions.put(C.JSONFieldNames.SIZE, FuzzyExpansionCache.size());
+    FilterCache filters = FilterCache.getInstance();
+    JSONObject filterCache = new JSONObject();
+    filterCache.put(C.JSONFieldNames.HIT_COUNT, filters.hitCount());
+    filterCache.put(C.JSONFieldNames.MISS_COUNT, filters.missCount());
+    filterCache.put(C.JSONFieldNames.HIT_RATE, filters.hitRate());
+    filterCache.put(C.JSONFieldNames.EVICTION_COUNT, filters.evictionCount());
+    filterCache.put(C.JSONFieldNames.SIZE, filters.size());
+    filterCache.put(C.JSONFieldNames.CACHED_FILTERS, filters.cachedFilters());
+    filterCache.put(C.JSONFieldNames.RAM_BYTES, filters.ramBytesUsed());
+    JSONObject search = new JSONObject();
+    search.put(C.JSONFieldNames.QUERIES, ParallelIndexSearcher.queries());
+    search.put(C.JSONFieldNames.AVERAGE_PARALLELISM,
+      ParallelIndexSearcher.averageParallelism());
+    AdmissionControl admissionControl = AdmissionControl.getInstance();
+    JSONObject admission = new JSONObject();
+    admission.put(C.JSONFieldNames.INTERACTIVE,
+      poolStatistics(admissionControl.interactive()));
+    admission.put(C.JSONFieldNames.FULL_TEXT,
+      poolStatistics(admissionControl.fullText()));
+    admission.put(C.JSONFieldNames.EXPORT,
+      poolStatistics(admissionControl.export()));
+    JSONObject json = new JSONObject();
+    json.put(C.JSONFieldNames.RESULT_CACHE, resultCache);
+    json.put(C.JSONFieldNames.FUZZY_EXPANSIONS, fuzzyExpansions);
+    json.put(C.JSONFieldNames.FILTER_CACHE, filterCache);
+    json.put(C.JSONFieldNames.SEARCH, search);
+    json.put(C.JSONFieldNames.ADMISSION, admission);
+    return json.toString();
+  }
+
+  private static JSONObject poolStatistics(AdmissionControl.Pool pool) {
+    JSONObject json = new JSONObject();
+    json.put(C.JSONFieldNames.ACTIVE, pool.active());
+    json.put(C.JSONFieldNames.QUEUED, pool.queued());
+    json.put(C.JSONFieldNames.ADMITTED, pool.admitted());
+    json.put(C.JSONFieldNames.REJECTED, pool.rejected());
+    json.put(C.JSONFieldNames.TIMED_OUT, pool.timedOut());
+    json.put(C.JSONFieldNames.AVERAGE_WAIT, pool.averageWait());
+    json.put(C.JSONFieldNames.MAX_WAIT, pool.maxWait());
+    return json;
+  }
+
+  private static JSONObject cacheStatistics(CacheStats stats, long size) {
+    JSONObject json = new JSONObject();
+    json.put(C.JSONFieldNames.HIT_COUNT, stats.hitCount());
+    json.put(C.JSONFieldNames.MISS_COUNT, stats.missCount());
+    json.put(C.JSONFieldNames.HIT_RATE, stats.hitRate());
+    json.put(C.JSONFieldNames.EVICTION_COUNT, stats.evictionCount());
+    json.put(C.JSONFieldNames.SIZE, size);
+    return json;
+  }
+}
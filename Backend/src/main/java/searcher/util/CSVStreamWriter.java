@@ -0,0 +1,72 @@
+package searcher.util;
+
+import java.io.PrintWriter;
+
+/**
+ * Write CSV records to a {@link PrintWriter} in chunks. Records are buffered
+ * in a {@link CSVStringBuilder} and handed to the writer once either the
+ * number of buffered records or the number of buffered characters exceeds a
+ * limit, so the memory held per export does not depend on its size.
+ */
+public class CSVStreamWriter {
+
+  /**
+   * Upper bound of buffered characters, independent of the record limit
+   */
+  private static final int MAX_BUFFERED_CHARACTERS = 1 << 20;
+
+  private final PrintWriter writer;
+  private final CSVStringBuilder buffer;
+  private final int flushRecords;
+  private int bufferedRecords;
+  private long writtenRecords;
+
+  /**
+   * @param writer       to write the records to
+   * @param flushRecords number of records buffered before they are written
+   */
+  public CSVStreamWriter(PrintWriter writer, int flushRecords) {
+    this.writer = writer;
+    this.buffer = new CSVStringBuilder();
+    this.flushRecords = Math.max(1, flushRecords);
+    this.bufferedRecords = 0;
+    this.writtenRecords = 0;
+  }
+
+  /**
+   * Add a record and write the buffered records if a limit was reached.
+   *
+   * @param record elements of the record
+   * @return false if the client is no longer accepting data
+   */
+  public boolean addRecord(String... record) {
+    buffer.addRecord(record);
+    ++bufferedRecords;
+    if (bufferedRecords >= flushRecords ||
+      buffer.length() >= MAX_BUFFERED_CHARACTERS) {
+      return flush();
+    }
+    return true;
+  }
+
+  /**
+   * Write all buffered records and flush the underlying writer.
+   *
+   * @return false if the client is no longer accepting data
+   */
+  public boolean flush() {
+    writer.write(buffer.toString());
+    writtenRecords += bufferedRecords;
+    bufferedRecords = 0;
+    buffer.clear();
+    // A PrintWriter never throws, a closed connection shows up as an error
+    return !writer.checkError();
+  }
+
+  /**
+   * @return number of records handed to the writer so far
+   */
+  public long writtenRecords() {
+    return writtenRecords;
+  }
+}
@@ -38,6 +38,20 @@ public class CSVStringBuilder {
     stringBuilder.append(LINE_BREAK);
   }
 
+  /**
+   * @return number of characters buffered so far
+   */
+  public int length() {
+    return stringBuilder.length();
+  }
+
+  /**
+   * Discard all buffered records, keeping the allocated capacity.
+   */
+  public void clear() {
+    stringBuilder.setLength(0);
+  }
+
   @Override
   public String toString() {
     return stringBuilder.toString();
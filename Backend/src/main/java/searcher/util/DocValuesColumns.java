@@ -0,0 +1,135 @@
+package searcher.util;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.EpochDays;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read the values of hits column-wise from the doc values of the index
+ * fields. No stored field is decompressed.
+ */
+public class DocValuesColumns {
+
+  private enum Type {LONG, DOUBLE, STRING, DAY}
+
+  private static final Map<String, Type> TYPES = new HashMap<>();
+
+  static {
+    TYPES.put(C.FieldNames.ID, Type.LONG);
+    TYPES.put(C.FieldNames.LENGTH, Type.LONG);
+    TYPES.put(C.FieldNames.CLUSTER, Type.LONG);
+    TYPES.put(C.FieldNames.LATITUDE, Type.DOUBLE);
+    TYPES.put(C.FieldNames.LONGITUDE, Type.DOUBLE);
+    TYPES.put(C.FieldNames.DAY, Type.DAY);
+    TYPES.put(C.FieldNames.LANGUAGE, Type.STRING);
+    TYPES.put(C.FieldNames.CORPUS, Type.STRING);
+  }
+
+  /**
+   * Names of all fields that can be read from doc values
+   */
+  public static final Set<String> FIELDS =
+    Collections.unmodifiableSet(TYPES.keySet());
+
+  private final IndexReader reader;
+  private final String[] fields;
+
+  /**
+   * @param reader to read the doc values from
+   * @param fields to be read, each must be contained in {@link #FIELDS}
+   */
+  public DocValuesColumns(IndexReader reader, String... fields) {
+    for (String field : fields) {
+      if (!TYPES.containsKey(field)) {
+        throw new IllegalArgumentException("No doc values for: " + field);
+      }
+    }
+    this.reader = reader;
+    this.fields = fields;
+  }
+
+  /**
+   * Read the values of a range of hits. The hits are visited in doc id order,
+   * as doc values can only be iterated forwards, but the result is in the
+   * order of the given hits.
+   *
+   * @param hits all hits
+   * @param from index of the first hit (inclusive)
+   * @param to   index of the last hit (exclusive)
+   * @return values[hit - from][column], null if a document has no value
+   * @throws IOException in case reading the doc values failed
+   */
+  public String[][] read(ScoreDoc[] hits, int from, int to)
+    throws IOException {
+    String[][] values = new String[to - from][fields.length];
+    Object[] iterators = new Object[fields.length];
+    HitLoader.forEachLeaf(reader, hits, from, to, (leaf, order, start, end) -> {
+      open(leaf.reader(), iterators);
+      for (int i = start; i < end; ++i) {
+        int leafDoc = hits[order[i]].doc - leaf.docBase;
+        for (int column = 0; column < fields.length; ++column) {
+          values[order[i] - from][column] =
+            value(iterators[column], column, leafDoc);
+        }
+      }
+    });
+    return values;
+  }
+
+  private void open(LeafReader reader, Object[] iterators) throws IOException {
+    for (int column = 0; column < fields.length; ++column) {
+      String field = fields[column];
+      if (TYPES.get(field) == Type.STRING) {
+        iterators[column] = DocValues.getSorted(reader, field);
+      } else if (TYPES.get(field) == Type.DAY &&
+        reader.getFieldInfos().fieldInfo(C.FieldNames.DATE) != null) {
+        // Segment written before dates were indexed as days
+        iterators[column] = DocValues.getSorted(reader, C.FieldNames.DATE);
+      } else {
+        iterators[column] = DocValues.getNumeric(reader, field);
+      }
+    }
+  }
+
+  private String value(Object iterator, int column, int doc)
+    throws IOException {
+    switch (TYPES.get(fields[column])) {
+      case LONG: {
+        NumericDocValues values = (NumericDocValues) iterator;
+        return values.advanceExact(doc) ? Long.toString(values.longValue())
+          : null;
+      }
+      case DOUBLE: {
+        NumericDocValues values = (NumericDocValues) iterator;
+        return values.advanceExact(doc) ?
+          Double.toString(Double.longBitsToDouble(values.longValue())) : null;
+      }
+      case DAY: {
+        if (iterator instanceof NumericDocValues) {
+          NumericDocValues values = (NumericDocValues) iterator;
+          return values.advanceExact(doc) ?
+            EpochDays.format((int) values.longValue()) : null;
+        }
+        SortedDocValues values = (SortedDocValues) iterator;
+        return values.advanceExact(doc) ?
+          values.lookupOrd(values.ordValue()).utf8ToString() : null;
+      }
+      default: {
+        SortedDocValues values = (SortedDocValues) iterator;
+        return values.advanceExact(doc) ?
+          values.lookupOrd(values.ordValue()).utf8ToString() : null;
+      }
+    }
+  }
+}
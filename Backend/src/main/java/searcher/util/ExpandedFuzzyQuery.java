@@ -0,0 +1,97 @@
+package searcher.util;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BlendedTermQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A fuzzy query whose term expansion is taken from the {@link
+ * FuzzyExpansionCache}. Scoring queries are rewritten to the same blended
+ * term query a {@link FuzzyQuery} rewrites to, non-scoring ones (like
+ * exclusions) to a {@link TermInSetQuery}.
+ */
+public class ExpandedFuzzyQuery extends Query {
+
+  private final Term term;
+  private final int maxEdits;
+  private final int prefixLength;
+  private final boolean scoring;
+
+  /**
+   * @param term         to be expanded
+   * @param maxEdits     maximum edit distance
+   * @param prefixLength length of the common non-fuzzy prefix
+   * @param scoring      false if the scores of the matches are not needed
+   */
+  public ExpandedFuzzyQuery(Term term, int maxEdits, int prefixLength,
+                            boolean scoring) {
+    this.term = term;
+    this.maxEdits = maxEdits;
+    this.prefixLength = prefixLength;
+    this.scoring = scoring;
+  }
+
+  @Override
+  public Query rewrite(IndexReader reader) throws IOException {
+    FuzzyExpansionCache.Expansion expansion =
+      FuzzyExpansionCache.expand(reader, term, maxEdits, prefixLength);
+    Term[] terms = expansion.terms();
+    if (terms.length == 0) {
+      return new MatchNoDocsQuery("No terms within the edit distance");
+    }
+    if (!scoring) {
+      return new ConstantScoreQuery(new TermInSetQuery(term.field(),
+        Arrays.stream(terms).map(Term::bytes).toArray(
+          BytesRef[]::new)));
+    }
+    BlendedTermQuery.Builder builder = new BlendedTermQuery.Builder()
+      .setRewriteMethod(BlendedTermQuery.BOOLEAN_REWRITE);
+    for (int i = 0; i < terms.length; ++i) {
+      builder.add(terms[i], expansion.boosts()[i]);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    if (visitor.acceptField(term.field())) {
+      visitor.visitLeaf(this);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    StringBuilder builder = new StringBuilder();
+    if (!term.field().equals(field)) {
+      builder.append(term.field()).append(':');
+    }
+    return builder.append(term.text()).append('~').append(maxEdits)
+      .toString();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!sameClassAs(other)) {
+      return false;
+    }
+    ExpandedFuzzyQuery query = (ExpandedFuzzyQuery) other;
+    return term.equals(query.term) && maxEdits == query.maxEdits &&
+      prefixLength == query.prefixLength && scoring == query.scoring;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(classHash(), term, maxEdits, prefixLength, scoring);
+  }
+}
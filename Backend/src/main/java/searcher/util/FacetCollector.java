@@ -0,0 +1,345 @@
+package searcher.util;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.EpochDays;
+import org.apache.lucene.geo.GeoEncodingUtils;
+import org.apache.lucene.geo.GeoUtils;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Count the hits of a query per year, language, length bucket, cluster and
+ * latitude/longitude grid cell in a single pass. All values are read from the
+ * doc values of the index fields, no stored field is loaded. The grid cell is
+ * computed from the location doc values, segments of indexes written before
+ * the location was indexed fall back to the latitude and longitude. Use {@link
+ * #manager(int, double)} to count the slices of an index concurrently.
+ */
+public class FacetCollector extends SimpleCollector {
+
+  private final int lengthBucket;
+  private final double gridSize;
+
+  // Counts over all segments
+  private final Map<Integer, Long> years = new TreeMap<>();
+  private final Map<String, Long> languages = new TreeMap<>();
+  private final Map<Long, Long> lengths = new TreeMap<>();
+  private final Map<Long, Long> clusters = new TreeMap<>();
+  private final Map<Long, Long> cells = new HashMap<>();
+  private long totalHits = 0;
+
+  // Doc values and ordinal counts of the current segment
+  private NumericDocValues dayValues;
+  // Dates of segments written before dates were indexed as days
+  private SortedDocValues dateValues;
+  private SortedDocValues languageValues;
+  private NumericDocValues lengthValues;
+  private NumericDocValues clusterValues;
+  private SortedNumericDocValues locationValues;
+  private NumericDocValues latitudeValues;
+  private NumericDocValues longitudeValues;
+  private int[] dateOrdinalCounts;
+  // Counts per year of the current segment, starting at firstYear
+  private int[] yearCounts;
+  private int firstYear;
+  // First day of each year of the current segment and of the year after
+  private int[] yearStarts;
+  private int[] languageOrdinalCounts;
+
+  /**
+   * @param lengthBucket width of a text length bucket in words
+   * @param gridSize     width and height of a grid cell in degrees
+   */
+  public FacetCollector(int lengthBucket, double gridSize) {
+    this.lengthBucket = Math.max(1, lengthBucket);
+    this.gridSize = gridSize;
+  }
+
+  /**
+   * Create a {@link CollectorManager} that counts each slice of the index
+   * with its own collector and merges the counts.
+   *
+   * @param lengthBucket width of a text length bucket in words
+   * @param gridSize     width and height of a grid cell in degrees
+   * @return collector manager
+   */
+  public static CollectorManager<FacetCollector, FacetCollector> manager(
+    int lengthBucket, double gridSize) {
+    return new CollectorManager<FacetCollector, FacetCollector>() {
+      @Override
+      public FacetCollector newCollector() {
+        return new FacetCollector(lengthBucket, gridSize);
+      }
+
+      @Override
+      public FacetCollector reduce(Collection<FacetCollector> collectors)
+        throws IOException {
+        FacetCollector result = new FacetCollector(lengthBucket, gridSize);
+        for (FacetCollector collector : collectors) {
+          collector.finishSegment();
+          result.merge(collector);
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * Add the counts of another collector to the counts of this collector.
+   *
+   * @param other collector with resolved counts
+   */
+  private void merge(FacetCollector other) {
+    totalHits += other.totalHits;
+    other.years.forEach((key, count) -> increment(years, key, count));
+    other.languages.forEach((key, count) -> increment(languages, key, count));
+    other.lengths.forEach((key, count) -> increment(lengths, key, count));
+    other.clusters.forEach((key, count) -> increment(clusters, key, count));
+    other.cells.forEach((key, count) -> increment(cells, key, count));
+  }
+
+  @Override
+  protected void doSetNextReader(LeafReaderContext context)
+    throws IOException {
+    finishSegment();
+    LeafReader reader = context.reader();
+    if (reader.getFieldInfos().fieldInfo(C.FieldNames.DATE) != null) {
+      dayValues = null;
+      dateValues = DocValues.getSorted(reader, C.FieldNames.DATE);
+      dateOrdinalCounts = new int[dateValues.getValueCount()];
+    } else {
+      dayValues = DocValues.getNumeric(reader, C.FieldNames.DAY);
+      dateValues = null;
+      // The years of the segment are bounded by its smallest and largest
+      // day, a hit finds its year among their first days
+      PointValues points = reader.getPointValues(C.FieldNames.DAY);
+      if (points != null) {
+        firstYear = EpochDays.year(
+          IntPoint.decodeDimension(points.getMinPackedValue(), 0));
+        int lastYear = EpochDays.year(
+          IntPoint.decodeDimension(points.getMaxPackedValue(), 0));
+        yearCounts = new int[lastYear - firstYear + 1];
+        yearStarts = new int[yearCounts.length + 1];
+        for (int i = 0; i < yearStarts.length; ++i) {
+          yearStarts[i] = EpochDays.firstDayOfYear(firstYear + i);
+        }
+      }
+    }
+    languageValues = DocValues.getSorted(reader, C.FieldNames.LANGUAGE);
+    lengthValues = DocValues.getNumeric(reader, C.FieldNames.LENGTH);
+    clusterValues = DocValues.getNumeric(reader, C.FieldNames.CLUSTER);
+    if (reader.getFieldInfos().fieldInfo(C.FieldNames.LOCATION) != null) {
+      locationValues =
+        DocValues.getSortedNumeric(reader, C.FieldNames.LOCATION);
+      latitudeValues = null;
+      longitudeValues = null;
+    } else {
+      locationValues = null;
+      latitudeValues = DocValues.getNumeric(reader, C.FieldNames.LATITUDE);
+      longitudeValues = DocValues.getNumeric(reader, C.FieldNames.LONGITUDE);
+    }
+    languageOrdinalCounts = new int[languageValues.getValueCount()];
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    ++totalHits;
+    if (dayValues != null) {
+      if (dayValues.advanceExact(doc)) {
+        ++yearCounts[yearIndex((int) dayValues.longValue())];
+      }
+    } else if (dateValues.advanceExact(doc)) {
+      ++dateOrdinalCounts[dateValues.ordValue()];
+    }
+    if (languageValues.advanceExact(doc)) {
+      ++languageOrdinalCounts[languageValues.ordValue()];
+    }
+    if (lengthValues.advanceExact(doc)) {
+      increment(lengths, (lengthValues.longValue() / lengthBucket) *
+        lengthBucket, 1);
+    }
+    if (clusterValues.advanceExact(doc)) {
+      increment(clusters, clusterValues.longValue(), 1);
+    }
+    if (locationValues != null) {
+      if (locationValues.advanceExact(doc)) {
+        long location = locationValues.nextValue();
+        increment(cells, cell((int) (location >> 32), (int) location), 1);
+      }
+    } else if (latitudeValues.advanceExact(doc) &&
+      longitudeValues.advanceExact(doc)) {
+      double latitude = Double.longBitsToDouble(latitudeValues.longValue());
+      double longitude = Double.longBitsToDouble(longitudeValues.longValue());
+      increment(cells, cell(latitude, longitude), 1);
+    }
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.COMPLETE_NO_SCORES;
+  }
+
+  /**
+   * Resolve the ordinal counts of the current segment to their values. Must
+   * be called once after the search finished.
+   *
+   * @throws IOException in case looking up an ordinal failed
+   */
+  public void finishSegment() throws IOException {
+    if (yearCounts != null) {
+      for (int i = 0; i < yearCounts.length; ++i) {
+        if (yearCounts[i] > 0) {
+          increment(years, firstYear + i, yearCounts[i]);
+        }
+      }
+      yearCounts = null;
+    }
+    if (dateOrdinalCounts != null) {
+      for (int ord = 0; ord < dateOrdinalCounts.length; ++ord) {
+        if (dateOrdinalCounts[ord] > 0) {
+          String date = dateValues.lookupOrd(ord).utf8ToString();
+          Integer year = year(date);
+          if (year != null) {
+            increment(years, year, dateOrdinalCounts[ord]);
+          }
+        }
+      }
+      dateOrdinalCounts = null;
+    }
+    if (languageOrdinalCounts != null) {
+      for (int ord = 0; ord < languageOrdinalCounts.length; ++ord) {
+        if (languageOrdinalCounts[ord] > 0) {
+          String language = languageValues.lookupOrd(ord).utf8ToString();
+          increment(languages, language, languageOrdinalCounts[ord]);
+        }
+      }
+      languageOrdinalCounts = null;
+    }
+  }
+
+  /**
+   * @param day days since 1970-01-01 within the years of the segment
+   * @return index of the year of the day in the counts of the segment
+   */
+  private int yearIndex(int day) {
+    int index = Arrays.binarySearch(yearStarts, day);
+    // Between two first days, the insertion point is the year after
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * @param date ISO 8601 string representation of a date
+   * @return the year of the date or null if it is malformed
+   */
+  private static Integer year(String date) {
+    int end = date.indexOf('-', 1);
+    try {
+      return Integer.parseInt(end < 0 ? date : date.substring(0, end));
+    } catch (NumberFormatException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * Pack the grid cell of a coordinate into a single key.
+   */
+  private long cell(double latitude, double longitude) {
+    long row = (long) Math.floor(latitude / gridSize);
+    long column = (long) Math.floor(longitude / gridSize);
+    return cell(row, column);
+  }
+
+  /**
+   * Pack the grid cell of an encoded location into a single key. The
+   * encoding rounds coordinates down, so a coordinate on the edge of a cell
+   * is decoded slightly below the edge. It is moved back into the cell above
+   * the edge, as if the exact coordinate was used.
+   *
+   * @param latitude  encoded latitude, see {@link GeoEncodingUtils}
+   * @param longitude encoded longitude
+   */
+  private long cell(int latitude, int longitude) {
+    long row = (long) Math.floor(
+      GeoEncodingUtils.decodeLatitude(latitude) / gridSize);
+    double edge = (row + 1) * gridSize;
+    if (edge <= GeoUtils.MAX_LAT_INCL &&
+      latitude >= GeoEncodingUtils.encodeLatitude(edge)) {
+      ++row;
+    }
+    long column = (long) Math.floor(
+      GeoEncodingUtils.decodeLongitude(longitude) / gridSize);
+    edge = (column + 1) * gridSize;
+    if (edge <= GeoUtils.MAX_LON_INCL &&
+      longitude >= GeoEncodingUtils.encodeLongitude(edge)) {
+      ++column;
+    }
+    return cell(row, column);
+  }
+
+  private static long cell(long row, long column) {
+    return (row << 32) | (column & 0xFFFFFFFFL);
+  }
+
+  private static <K> void increment(Map<K, Long> counts, K key, long count) {
+    counts.merge(key, count, Long::sum);
+  }
+
+  public long totalHits() {
+    return totalHits;
+  }
+
+  public Map<Integer, Long> years() {
+    return years;
+  }
+
+  public Map<String, Long> languages() {
+    return languages;
+  }
+
+  public Map<Long, Long> lengths() {
+    return lengths;
+  }
+
+  public Map<Long, Long> clusters() {
+    return clusters;
+  }
+
+  /**
+   * @return map from packed grid cell to count
+   */
+  public Map<Long, Long> cells() {
+    return cells;
+  }
+
+  /**
+   * @param cell packed grid cell
+   * @return latitude of the lower edge of the cell
+   */
+  public double cellLatitude(long cell) {
+    return (cell >> 32) * gridSize;
+  }
+
+  /**
+   * @param cell packed grid cell
+   * @return longitude of the left edge of the cell
+   */
+  public double cellLongitude(long cell) {
+    return ((int) cell) * gridSize;
+  }
+}
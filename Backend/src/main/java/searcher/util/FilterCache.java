@@ -0,0 +1,170 @@
+package searcher.util;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.io.IOException;
+
+/**
+ * Per-segment cache of the documents matching a filter. The constraints
+ * built by {@link LuceneQueryBuilder} are non-scoring filter clauses, such
+ * that Lucene caches their matches as a bitset per segment and answers a
+ * repeated filter with an intersection. The cache is shared by all
+ * searchers, bounded by <i>serve.filter.cacheSize</i> filters and
+ * <i>serve.filter.cacheMB</i> and evicts the least recently used filters.
+ * Entries of a segment are dropped when the segment is closed.
+ * <p>
+ * The language and cluster filters are cached on first use, the
+ * dashboards apply few distinct values of them over and over. All other
+ * filters are cached once they are used repeatedly, see {@link
+ * UsageTrackingQueryCachingPolicy}. Segments smaller than
+ * <i>serve.filter.minSegmentDocs</i> are never cached.
+ * <p>
+ * If the limits are reconfigured, searchers opened afterwards use a new,
+ * empty cache. The current searcher keeps the previous cache until the index
+ * is refreshed.
+ */
+public class FilterCache {
+
+  private static final long MEGABYTE = 1024 * 1024;
+
+  private static FilterCache instance = null;
+
+  private volatile LRUQueryCache cache;
+  private final Policy policy = new Policy();
+  private int size;
+  private int megabytes;
+  private int minSegmentDocs;
+
+  private FilterCache(int size, int megabytes, int minSegmentDocs) {
+    build(size, megabytes, minSegmentDocs);
+    C.addReloadListener(this::reconfigure);
+  }
+
+  private void build(int size, int megabytes, int minSegmentDocs) {
+    this.size = size;
+    this.megabytes = megabytes;
+    this.minSegmentDocs = minSegmentDocs;
+    cache = size > 0 ? new LRUQueryCache(size, megabytes * MEGABYTE,
+      leaf -> leaf.reader().maxDoc() >= minSegmentDocs) : null;
+  }
+
+  /**
+   * Replace the cache by an empty one if its limits were changed.
+   */
+  private synchronized void reconfigure() {
+    int size = C.Serve.filterCacheSize();
+    int megabytes = C.Serve.filterCacheMB();
+    int minSegmentDocs = C.Serve.filterMinSegmentDocs();
+    if (size != this.size || megabytes != this.megabytes ||
+      minSegmentDocs != this.minSegmentDocs) {
+      build(size, megabytes, minSegmentDocs);
+    }
+  }
+
+  /**
+   * Ensure that there is <i>one</i> instance of the cache.
+   *
+   * @return {@link FilterCache}
+   */
+  public static synchronized FilterCache getInstance() {
+    if (instance == null) {
+      instance = new FilterCache(C.Serve.filterCacheSize(),
+        C.Serve.filterCacheMB(), C.Serve.filterMinSegmentDocs());
+    }
+    return instance;
+  }
+
+  /**
+   * Let a searcher cache its filters in this cache.
+   *
+   * @param indexSearcher to be configured
+   */
+  public void configure(IndexSearcher indexSearcher) {
+    indexSearcher.setQueryCache(cache);
+    indexSearcher.setQueryCachingPolicy(policy);
+  }
+
+  /**
+   * @return number of lookups that found a cached bitset
+   */
+  public long hitCount() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.getHitCount() : 0;
+  }
+
+  /**
+   * @return number of lookups that did not find a cached bitset
+   */
+  public long missCount() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.getMissCount() : 0;
+  }
+
+  /**
+   * @return ratio of lookups that found a cached bitset, 1 without lookups
+   */
+  public double hitRate() {
+    LRUQueryCache cache = this.cache;
+    long total = cache != null ? cache.getTotalCount() : 0;
+    return total > 0 ? (double) cache.getHitCount() / total : 1.0;
+  }
+
+  /**
+   * @return number of evicted bitsets
+   */
+  public long evictionCount() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.getEvictionCount() : 0;
+  }
+
+  /**
+   * @return number of cached bitsets (one per filter and segment)
+   */
+  public long size() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.getCacheSize() : 0;
+  }
+
+  /**
+   * @return number of cached filters
+   */
+  public long cachedFilters() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.getCacheCount() : 0;
+  }
+
+  /**
+   * @return memory used by the cache in bytes
+   */
+  public long ramBytesUsed() {
+    LRUQueryCache cache = this.cache;
+    return cache != null ? cache.ramBytesUsed() : 0;
+  }
+
+  /**
+   * Cache the categorical filters right away and all others once they are
+   * used repeatedly.
+   */
+  private static class Policy extends UsageTrackingQueryCachingPolicy {
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+      if (query instanceof TermQuery) {
+        // Not cached by the usage tracking, term queries are cheap to score,
+        // but the language filter matches large parts of the index
+        return ((TermQuery) query).getTerm().field()
+          .equals(C.FieldNames.LANGUAGE);
+      }
+      if (query instanceof PointRangeQuery &&
+        ((PointRangeQuery) query).getField().equals(C.FieldNames.CLUSTER)) {
+        return true;
+      }
+      return super.shouldCache(query);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package searcher.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BoostAttribute;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.FuzzyTermsEnum;
+import org.apache.lucene.util.AttributeSource;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of fuzzy term expansions. Expanding a fuzzy term intersects a
+ * Levenshtein automaton with the whole terms dictionary of the field, which
+ * is by far the most expensive part of a query. The expansions only change
+ * when the index changes, so they are cached per index reader and dropped
+ * as soon as the reader is closed. Each reader's cache holds at most
+ * <i>serve.fuzzy.cacheSize</i> expansions and evicts the least recently used
+ * ones.
+ */
+public class FuzzyExpansionCache {
+
+  private static final Map<IndexReader.CacheKey, Cache<String, Expansion>>
+    caches = new ConcurrentHashMap<>();
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private FuzzyExpansionCache() {}
+
+  /**
+   * Return the terms of a reader that are within the edit distance of a
+   * term, like a {@link FuzzyQuery} rewritten on the reader would. At most
+   * {@link FuzzyQuery#defaultMaxExpansions} terms with the highest
+   * similarity are kept.
+   *
+   * @param reader       to expand the term on
+   * @param term         to be expanded
+   * @param maxEdits     maximum edit distance
+   * @param prefixLength length of the common non-fuzzy prefix
+   * @return {@link Expansion}
+   * @throws IOException in case reading the terms dictionary failed
+   */
+  public static Expansion expand(IndexReader reader, Term term, int maxEdits,
+                                 int prefixLength) throws IOException {
+    Cache<String, Expansion> cache = cache(reader);
+    if (cache == null) {
+      return compute(reader, term, maxEdits, prefixLength);
+    }
+    String key = maxEdits + "|" + prefixLength + "|" + term;
+    Expansion expansion = cache.getIfPresent(key);
+    if (expansion != null) {
+      hits.incrementAndGet();
+      return expansion;
+    }
+    try {
+      return cache.get(key, () -> {
+        misses.incrementAndGet();
+        return compute(reader, term, maxEdits, prefixLength);
+      });
+    } catch (ExecutionException exception) {
+      throw new IOException(exception.getCause());
+    }
+  }
+
+  /**
+   * Return the cache of a reader and create it on first use.
+   *
+   * @param reader the expansions are computed on
+   * @return cache or null if the reader does not support caching
+   */
+  private static Cache<String, Expansion> cache(IndexReader reader) {
+    IndexReader.CacheHelper helper = reader.getReaderCacheHelper();
+    int size = C.Serve.fuzzyCacheSize();
+    if (helper == null || size <= 0) {
+      return null;
+    }
+    return caches.computeIfAbsent(helper.getKey(), key -> {
+      helper.addClosedListener(caches::remove);
+      return CacheBuilder.newBuilder().maximumSize(size).build();
+    });
+  }
+
+  private static Expansion compute(IndexReader reader, Term term,
+                                   int maxEdits, int prefixLength)
+    throws IOException {
+    Terms terms = MultiTerms.getTerms(reader, term.field());
+    if (terms == null) {
+      return new Expansion(new Term[0], new float[0]);
+    }
+    if (maxEdits == 0 || prefixLength >= term.text().length()) {
+      // Like FuzzyQuery, only the term itself matches
+      TermsEnum termsEnum = terms.iterator();
+      if (termsEnum.seekExact(term.bytes())) {
+        return new Expansion(new Term[]{term}, new float[]{1.0f});
+      }
+      return new Expansion(new Term[0], new float[0]);
+    }
+    FuzzyTermsEnum termsEnum = new FuzzyTermsEnum(terms, new AttributeSource(),
+      term, maxEdits, prefixLength, FuzzyQuery.defaultTranspositions);
+    BoostAttribute boost = termsEnum.attributes()
+      .addAttribute(BoostAttribute.class);
+    int maxExpansions = FuzzyQuery.defaultMaxExpansions;
+    // Keep the most similar terms, ties are broken by term order like in
+    // TopTermsRewrite
+    Comparator<ScoredTerm> worstFirst = Comparator
+      .comparingDouble((ScoredTerm scoredTerm) -> scoredTerm.boost)
+      .thenComparing((ScoredTerm scoredTerm) -> scoredTerm.bytes,
+        Comparator.reverseOrder());
+    PriorityQueue<ScoredTerm> queue =
+      new PriorityQueue<>(maxExpansions + 1, worstFirst);
+    BytesRef bytes;
+    while ((bytes = termsEnum.next()) != null) {
+      queue.add(new ScoredTerm(BytesRef.deepCopyOf(bytes), boost.getBoost()));
+      if (queue.size() > maxExpansions) {
+        queue.poll();
+      }
+    }
+    Term[] expandedTerms = new Term[queue.size()];
+    float[] boosts = new float[queue.size()];
+    for (int i = expandedTerms.length - 1; i >= 0; --i) {
+      ScoredTerm scoredTerm = queue.poll();
+      expandedTerms[i] = new Term(term.field(), scoredTerm.bytes);
+      boosts[i] = scoredTerm.boost;
+    }
+    return new Expansion(expandedTerms, boosts);
+  }
+
+  /**
+   * @return number of expansions served from the cache
+   */
+  public static long hitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of expansions that had to be computed
+   */
+  public static long missCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of cached expansions of all open readers
+   */
+  public static long size() {
+    return caches.values().stream().mapToLong(Cache::size).sum();
+  }
+
+  /**
+   * Terms a fuzzy term expands to, ordered by decreasing similarity, and
+   * their boosts.
+   */
+  public static class Expansion {
+    private final Term[] terms;
+    private final float[] boosts;
+
+    private Expansion(Term[] terms, float[] boosts) {
+      this.terms = terms;
+      this.boosts = boosts;
+    }
+
+    public Term[] terms() {
+      return terms;
+    }
+
+    public float[] boosts() {
+      return boosts;
+    }
+  }
+
+  private static class ScoredTerm {
+    private final BytesRef bytes;
+    private final float boost;
+
+    private ScoredTerm(BytesRef bytes, float boost) {
+      this.bytes = bytes;
+      this.boost = boost;
+    }
+  }
+}
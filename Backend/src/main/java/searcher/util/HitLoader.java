@@ -0,0 +1,146 @@
+package searcher.util;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load the stored fields of hits in doc id order. Hits come in score order,
+ * which jumps back and forth through the compressed blocks of the stored
+ * fields. Sorted by doc id and grouped per segment, the stored fields of a
+ * segment are read front to back with one reused {@link
+ * StoredFieldSelector}. The consumer is told the index of each hit, such
+ * that it can restore the score order.
+ */
+public class HitLoader {
+
+  /**
+   * Receives the hits of one segment
+   */
+  @FunctionalInterface
+  public interface LeafHits {
+    /**
+     * @param leaf  segment containing the hits
+     * @param order indices of the hits, sorted by doc id
+     * @param from  first index in order (inclusive)
+     * @param to    last index in order (exclusive)
+     * @throws IOException in case reading the segment failed
+     */
+    void visit(LeafReaderContext leaf, int[] order, int from, int to)
+      throws IOException;
+  }
+
+  /**
+   * Receives the loaded fields of a hit
+   */
+  @FunctionalInterface
+  public interface LoadedHit {
+    /**
+     * @param hit      index of the hit
+     * @param document with the loaded fields, reused for the next hit
+     * @throws IOException in case processing the hit failed
+     */
+    void accept(int hit, StoredFieldSelector document) throws IOException;
+  }
+
+  private final IndexReader reader;
+  private final StoredFieldSelector selector;
+
+  /**
+   * @param reader the hits were found in
+   * @param fields stored fields to be loaded
+   */
+  public HitLoader(IndexReader reader, String... fields) {
+    this.reader = reader;
+    this.selector = new StoredFieldSelector(fields);
+  }
+
+  /**
+   * Load the fields of a range of hits in doc id order.
+   *
+   * @param hits     all hits
+   * @param from     index of the first hit (inclusive)
+   * @param to       index of the last hit (exclusive)
+   * @param consumer of the loaded hits
+   * @throws IOException in case reading the stored fields failed
+   */
+  public void load(ScoreDoc[] hits, int from, int to, LoadedHit consumer)
+    throws IOException {
+    forEachLeaf(reader, hits, from, to, (leaf, order, start, end) ->
+      load(hits, leaf, order, start, end, consumer));
+  }
+
+  /**
+   * Load the fields of the hits of one segment, see {@link LeafHits}.
+   *
+   * @param hits     all hits
+   * @param leaf     segment containing the hits
+   * @param order    indices of the hits, sorted by doc id
+   * @param from     first index in order (inclusive)
+   * @param to       last index in order (exclusive)
+   * @param consumer of the loaded hits
+   * @throws IOException in case reading the stored fields failed
+   */
+  public void load(ScoreDoc[] hits, LeafReaderContext leaf, int[] order,
+                   int from, int to, LoadedHit consumer) throws IOException {
+    LeafReader leafReader = leaf.reader();
+    for (int i = from; i < to; ++i) {
+      selector.reset();
+      leafReader.document(hits[order[i]].doc - leaf.docBase, selector);
+      consumer.accept(order[i], selector);
+    }
+  }
+
+  /**
+   * Sort a range of hits by doc id and pass the hits of every segment on.
+   *
+   * @param reader  the hits were found in
+   * @param hits    all hits
+   * @param from    index of the first hit (inclusive)
+   * @param to      index of the last hit (exclusive)
+   * @param visitor of the hits of a segment
+   * @throws IOException in case the visitor failed
+   */
+  public static void forEachLeaf(IndexReader reader, ScoreDoc[] hits,
+                                 int from, int to, LeafHits visitor)
+    throws IOException {
+    int[] order = sortByDoc(hits, from, to);
+    List<LeafReaderContext> leaves = reader.leaves();
+    int start = 0;
+    while (start < order.length) {
+      LeafReaderContext leaf =
+        leaves.get(ReaderUtil.subIndex(hits[order[start]].doc, leaves));
+      int leafEnd = leaf.docBase + leaf.reader().maxDoc();
+      int end = start + 1;
+      while (end < order.length && hits[order[end]].doc < leafEnd) {
+        ++end;
+      }
+      visitor.visit(leaf, order, start, end);
+      start = end;
+    }
+  }
+
+  /**
+   * @return indices of the hits from (inclusive) to (exclusive), sorted by
+   * doc id
+   */
+  private static int[] sortByDoc(ScoreDoc[] hits, int from, int to) {
+    // Sort doc id and index packed into one long, without boxing
+    long[] packed = new long[to - from];
+    for (int i = from; i < to; ++i) {
+      packed[i - from] = ((long) hits[i].doc << 32) | i;
+    }
+    Arrays.sort(packed);
+    int[] order = new int[packed.length];
+    for (int i = 0; i < packed.length; ++i) {
+      order[i] = (int) packed[i];
+    }
+    return order;
+  }
+}
@@ -0,0 +1,36 @@
+package searcher.util;
+
+/**
+ * Thrown by {@link LuceneQueryBuilder} if a URL parameter cannot be turned
+ * into a query, such that the searcher can answer with a parse error.
+ */
+public class InvalidParameterException extends IllegalArgumentException {
+  private static final long serialVersionUID = 1L;
+
+  private final String parameter;
+  private final String value;
+
+  /**
+   * @param parameter name of the URL parameter
+   * @param value     of the URL parameter
+   */
+  public InvalidParameterException(String parameter, String value) {
+    super("Invalid URL parameter: " + parameter + "=" + value);
+    this.parameter = parameter;
+    this.value = value;
+  }
+
+  /**
+   * @return name of the URL parameter
+   */
+  public String parameter() {
+    return parameter;
+  }
+
+  /**
+   * @return value of the URL parameter
+   */
+  public String value() {
+    return value;
+  }
+}
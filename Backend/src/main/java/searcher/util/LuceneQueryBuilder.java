@@ -1,15 +1,22 @@
 package searcher.util;
 
 import de.uni_stuttgart.searchfilter.common.configuration.C;
-import org.apache.lucene.document.DoublePoint;
+import de.uni_stuttgart.searchfilter.common.record.EpochDays;
 import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.geo.GeoEncodingUtils;
+import org.apache.lucene.geo.GeoUtils;
+import org.apache.lucene.geo.Polygon;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Build a Lucene @{Link Query} using a URL map of parameters.
@@ -23,9 +30,16 @@ public class LuceneQueryBuilder {
   private static final String TIME = "time";
   private static final String LONGITUDE = "longitude";
   private static final String LATITUDE = "latitude";
+  private static final String POLYGON = "polygon";
   private static final String LANGUAGE = "language";
   private static final String CLUSTER = "cluster";
 
+  /**
+   * All parameters that are consumed when building the query
+   */
+  private static final String[] PARAMETERS = {PRIMARY, SELECTIONS, EXCLUSIONS,
+    LENGTH, TIME, LONGITUDE, LATITUDE, POLYGON, LANGUAGE, CLUSTER};
+
   /**
    * Map that contains all the query fields
    */
@@ -42,7 +56,8 @@ public class LuceneQueryBuilder {
 
   /**
    * Return a list of {@link org.apache.lucene.search.BooleanClause} for a given
-   * string array and an operator.
+   * string array and an operator. Each term is matched fuzzily, its expansion
+   * is looked up in the {@link FuzzyExpansionCache}.
    *
    * @param terms to be added to the list
    * @param occur {@link org.apache.lucene.search.BooleanClause.Occur}
@@ -54,9 +69,10 @@ public class LuceneQueryBuilder {
     List<BooleanClause> booleanClauseList = new ArrayList<>();
     for (String primaryTerm : terms) {
       primaryTerm = primaryTerm.toLowerCase();
-      FuzzyQuery fuzzyQuery =
-        new FuzzyQuery(new Term(C.FieldNames.TEXT, primaryTerm),
-          maxEditDistance, PREFIX_LENGTH);
+      boolean scoring = occur != BooleanClause.Occur.MUST_NOT;
+      Query fuzzyQuery =
+        new ExpandedFuzzyQuery(new Term(C.FieldNames.TEXT, primaryTerm),
+          maxEditDistance, PREFIX_LENGTH, scoring);
       BooleanClause booleanClause = new BooleanClause(fuzzyQuery, occur);
       booleanClauseList.add(booleanClause);
     }
@@ -64,9 +80,13 @@ public class LuceneQueryBuilder {
   }
 
   /**
-   * Build a {@link Query} from an URL parameter map.
+   * Build a {@link Query} from an URL parameter map. The terms are scored,
+   * the constraints on length, time, location, language and cluster are
+   * filter clauses that do not contribute to the score and are cached by the
+   * {@link FilterCache}.
    *
    * @return {@link Query}
+   * @throws InvalidParameterException in case a parameter is malformed
    */
   public Query build() {
     BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder();
@@ -92,36 +112,69 @@ public class LuceneQueryBuilder {
     }
     if (queryMap.containsKey(LENGTH)) {
       String[] range = queryMap.get(LENGTH)[0].split(",");
-      booleanQueryBuilder
-        .add(getIntRange(C.FieldNames.LENGTH, range), BooleanClause.Occur.MUST);
+      booleanQueryBuilder.add(getIntRange(C.FieldNames.LENGTH, range),
+        BooleanClause.Occur.FILTER);
     }
     if (queryMap.containsKey(TIME)) {
-      String[] range = queryMap.get(TIME)[0].split(",");
-      booleanQueryBuilder.add(getStringRange(C.FieldNames.DATE, range),
-        BooleanClause.Occur.MUST);
+      booleanQueryBuilder.add(getDayRange(C.FieldNames.DAY,
+        queryMap.get(TIME)[0]), BooleanClause.Occur.FILTER);
     }
-    if (queryMap.containsKey(LONGITUDE)) {
-      String[] range = queryMap.get(LONGITUDE)[0].split(",");
-      booleanQueryBuilder.add(getDoubleRange(C.FieldNames.LONGITUDE, range),
-        BooleanClause.Occur.MUST);
+    if (queryMap.containsKey(LATITUDE) || queryMap.containsKey(LONGITUDE)) {
+      booleanQueryBuilder.add(getBox(), BooleanClause.Occur.FILTER);
     }
-    if (queryMap.containsKey(LATITUDE)) {
-      String[] range = queryMap.get(LATITUDE)[0].split(",");
-      booleanQueryBuilder.add(getDoubleRange(C.FieldNames.LATITUDE, range),
-        BooleanClause.Occur.MUST);
+    if (queryMap.containsKey(POLYGON)) {
+      booleanQueryBuilder.add(getPolygon(C.FieldNames.LOCATION,
+        queryMap.get(POLYGON)[0]), BooleanClause.Occur.FILTER);
     }
     if (queryMap.containsKey(LANGUAGE)) {
       String language = queryMap.get(LANGUAGE)[0].split(",")[0];
-      booleanQueryBuilder
-        .add(getTermQuery(C.FieldNames.LANGUAGE, language), BooleanClause.Occur.MUST);
+      booleanQueryBuilder.add(getTermQuery(C.FieldNames.LANGUAGE, language),
+        BooleanClause.Occur.FILTER);
     }
     if (queryMap.containsKey(CLUSTER)) {
       long cluster = Long.parseLong(queryMap.get(CLUSTER)[0].split(",")[0]);
-      booleanQueryBuilder.add(getTermQuery(CLUSTER, cluster), BooleanClause.Occur.MUST);
+      booleanQueryBuilder.add(getTermQuery(C.FieldNames.CLUSTER, cluster),
+        BooleanClause.Occur.FILTER);
     }
     return booleanQueryBuilder.build();
   }
 
+  /**
+   * Return a canonical string form of the parameters consumed by {@link
+   * #build()}. Two parameter maps with the same canonical form result in the
+   * same query: unrelated parameters are ignored, terms are lower-cased and
+   * sorted and only the first language and cluster are kept.
+   *
+   * @return canonical form of the query parameters
+   */
+  public String canonicalKey() {
+    StringBuilder key = new StringBuilder();
+    key.append('~').append(maxEditDistance);
+    for (String parameter : PARAMETERS) {
+      if (!queryMap.containsKey(parameter)) {
+        continue;
+      }
+      String value = queryMap.get(parameter)[0];
+      switch (parameter) {
+        case PRIMARY:
+        case SELECTIONS:
+        case EXCLUSIONS:
+          String[] terms = value.toLowerCase().split(",");
+          Arrays.sort(terms);
+          value = String.join(",", terms);
+          break;
+        case LANGUAGE:
+        case CLUSTER:
+          value = value.split(",")[0];
+          break;
+        default:
+          break;
+      }
+      key.append('&').append(parameter).append('=').append(value);
+    }
+    return key.toString();
+  }
+
   private Query getTermQuery(final String fieldName, String term) {
     return new TermQuery(new Term(fieldName, term));
   }
@@ -144,28 +197,118 @@ public class LuceneQueryBuilder {
   }
 
   /**
-   * Create a boolean clause for a given string range.
+   * Create a boolean clause for a given date range. Partial dates cover
+   * their whole year or month.
    *
    * @param fieldName on which the range is applied
-   * @param range     array of length two: [lower, upper]
-   * @return String range query
+   * @param value     lower and upper ISO 8601 date, separated by a comma
+   * @return Int range query on the days since 1970-01-01
+   * @throws InvalidParameterException in case a date is malformed
    */
-  private Query getStringRange(final String fieldName, String[] range) {
-    return TermRangeQuery
-      .newStringRange(fieldName, range[0], range[1], true, true);
+  private Query getDayRange(final String fieldName, String value) {
+    String[] range = value.split(",");
+    Integer lower = range.length == 2 ? EpochDays.first(range[0]) : null;
+    Integer upper = range.length == 2 ? EpochDays.last(range[1]) : null;
+    if (lower == null || upper == null) {
+      throw new InvalidParameterException(TIME, value);
+    }
+    return IntPoint.newRangeQuery(fieldName, lower, upper);
   }
 
 
   /**
-   * Create a Boolean clause for a given double range.
+   * Create a bounding box query from the latitude and longitude ranges. A
+   * missing range covers the whole globe. If the lower longitude is greater
+   * than the upper one, the box crosses the dateline.
    *
-   * @param fieldName on which the range is applied
-   * @param range     array of length two: [lower, upper]
-   * @return Double range query
+   * @return box query on the location
+   */
+  private Query getBox() {
+    double[] latitude = {GeoUtils.MIN_LAT_INCL, GeoUtils.MAX_LAT_INCL};
+    double[] longitude = {GeoUtils.MIN_LON_INCL, GeoUtils.MAX_LON_INCL};
+    if (queryMap.containsKey(LATITUDE)) {
+      latitude = getDoubleRange(queryMap.get(LATITUDE)[0].split(","),
+        latitude[0], latitude[1]);
+    }
+    if (queryMap.containsKey(LONGITUDE)) {
+      longitude = getDoubleRange(queryMap.get(LONGITUDE)[0].split(","),
+        longitude[0], longitude[1]);
+    }
+    // The box query rounds the lower bounds up to the next encoded value,
+    // which excludes points exactly on the lower edges. Rounding them down
+    // keeps them, as the range queries on the coordinates did.
+    double minLatitude = GeoEncodingUtils.decodeLatitude(
+      GeoEncodingUtils.encodeLatitude(latitude[0]));
+    double minLongitude = GeoEncodingUtils.decodeLongitude(
+      GeoEncodingUtils.encodeLongitude(longitude[0]));
+    return LatLonPoint.newBoxQuery(C.FieldNames.LOCATION, minLatitude,
+      latitude[1], minLongitude, longitude[1]);
+  }
+
+  /**
+   * Create a polygon query. The polygon is closed if its last vertex differs
+   * from the first one.
+   *
+   * @param fieldName on which the polygon is applied
+   * @param value     latitude and longitude of each vertex, separated by
+   *                  commas: lat,lon,lat,lon,...
+   * @return polygon query
+   * @throws InvalidParameterException in case a coordinate is malformed or
+   *                                   out of range, a latitude lacks its
+   *                                   longitude or the polygon has fewer
+   *                                   than three distinct vertices
+   */
+  private Query getPolygon(final String fieldName, String value) {
+    String[] coordinates = value.split(",");
+    if (coordinates.length % 2 != 0) {
+      throw new InvalidParameterException(POLYGON, value);
+    }
+    int vertices = coordinates.length / 2;
+    double[] latitudes = new double[vertices + 1];
+    double[] longitudes = new double[vertices + 1];
+    Set<List<Double>> distinct = new HashSet<>();
+    try {
+      for (int i = 0; i < vertices; ++i) {
+        latitudes[i] = Double.parseDouble(coordinates[2 * i]);
+        longitudes[i] = Double.parseDouble(coordinates[2 * i + 1]);
+        distinct.add(Arrays.asList(latitudes[i], longitudes[i]));
+      }
+    } catch (NumberFormatException exception) {
+      throw new InvalidParameterException(POLYGON, value);
+    }
+    if (distinct.size() < 3) {
+      throw new InvalidParameterException(POLYGON, value);
+    }
+    if (latitudes[vertices - 1] == latitudes[0] &&
+      longitudes[vertices - 1] == longitudes[0]) {
+      latitudes = Arrays.copyOf(latitudes, vertices);
+      longitudes = Arrays.copyOf(longitudes, vertices);
+    } else {
+      latitudes[vertices] = latitudes[0];
+      longitudes[vertices] = longitudes[0];
+    }
+    try {
+      return LatLonPoint.newPolygonQuery(fieldName,
+        new Polygon(latitudes, longitudes));
+    } catch (IllegalArgumentException exception) {
+      // Coordinates out of range
+      throw new InvalidParameterException(POLYGON, value);
+    }
+  }
+
+  /**
+   * Parse a double range and clip it to the valid values.
+   *
+   * @param range array of length two: [lower, upper]
+   * @param min   smallest valid value
+   * @param max   largest valid value
+   * @return lower and upper bound
    */
-  private Query getDoubleRange(final String fieldName, String[] range) {
+  private static double[] getDoubleRange(String[] range, double min,
+                                         double max) {
     double lower = Double.parseDouble(range[0]);
     double upper = Double.parseDouble(range[1]);
-    return DoublePoint.newRangeQuery(fieldName, lower, upper);
+    return new double[]{Math.min(Math.max(lower, min), max),
+      Math.min(Math.max(upper, min), max)};
   }
 }
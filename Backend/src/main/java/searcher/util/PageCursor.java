@@ -0,0 +1,113 @@
+package searcher.util;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a ranked list of hits: the page it ends, the score and
+ * document of the last hit on that page, the version of the index reader
+ * the document number refers to and a hash of the query the hits belong to.
+ * The next page is collected with {@link
+ * org.apache.lucene.search.IndexSearcher#searchAfter}, whose cost does not
+ * depend on how deep the page is.
+ */
+public class PageCursor {
+
+  private static final String SEPARATOR = ":";
+
+  private final int page;
+  private final ScoreDoc last;
+  private final long version;
+  private final int query;
+
+  /**
+   * @param page    number of the page the cursor ends
+   * @param last    last hit on the page
+   * @param version of the index reader
+   * @param query   hash of the query, see {@link #hash(String)}
+   */
+  public PageCursor(int page, ScoreDoc last, long version, int query) {
+    this.page = page;
+    this.last = last;
+    this.version = version;
+    this.query = query;
+  }
+
+  /**
+   * @param query canonical form of the query parameters
+   * @return hash of the query stored in the cursor
+   */
+  public static int hash(String query) {
+    return query.hashCode();
+  }
+
+  /**
+   * @param reader the hits were found on
+   * @return version of the reader or -1 if the reader is not versioned
+   */
+  public static long version(IndexReader reader) {
+    return reader instanceof DirectoryReader ?
+      ((DirectoryReader) reader).getVersion() : -1;
+  }
+
+  /**
+   * Decode a token created by {@link #encode()}.
+   *
+   * @param token URL-safe cursor token
+   * @return cursor or null if the token is malformed
+   */
+  public static PageCursor decode(String token) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(token),
+        StandardCharsets.UTF_8).split(SEPARATOR);
+      if (parts.length != 5) {
+        return null;
+      }
+      int page = Integer.parseInt(parts[0]);
+      float score =
+        Float.intBitsToFloat(Integer.parseUnsignedInt(parts[1], 16));
+      int doc = Integer.parseInt(parts[2]);
+      long version = Long.parseLong(parts[3]);
+      int query = Integer.parseUnsignedInt(parts[4], 16);
+      return new PageCursor(page, new ScoreDoc(doc, score), version, query);
+    } catch (IllegalArgumentException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * @return URL-safe token of the cursor
+   */
+  public String encode() {
+    // The score is encoded by its bits, as searchAfter compares it exactly
+    String cursor = page + SEPARATOR +
+      Integer.toHexString(Float.floatToIntBits(last.score)) + SEPARATOR +
+      last.doc + SEPARATOR + version + SEPARATOR +
+      Integer.toHexString(query);
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param reader to be searched
+   * @param query  canonical form of the query parameters to be searched
+   * @return true if the cursor belongs to the query and its document number
+   * is valid for the reader
+   */
+  public boolean isValidFor(IndexReader reader, String query) {
+    return version >= 0 && version == version(reader) &&
+      this.query == hash(query);
+  }
+
+  public int page() {
+    return page;
+  }
+
+  public ScoreDoc last() {
+    return last;
+  }
+}
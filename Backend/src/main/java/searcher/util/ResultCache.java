@@ -0,0 +1,172 @@
+package searcher.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.TopDocs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of search results. Hits ({@link TopDocs}) and rendered
+ * responses are cached separately, both keyed on the version of the index
+ * reader and the canonical form of the query parameters (see {@link
+ * LuceneQueryBuilder#canonicalKey()}). Hits are evicted by number, the
+ * responses, e.g. whole full text pages, by the memory of their characters.
+ * Entries are evicted by age and dropped when the index reader is reopened
+ * or a limit is reconfigured.
+ */
+public class ResultCache {
+
+  private static final long MEGABYTE = 1024 * 1024;
+
+  private static ResultCache instance = null;
+
+  private volatile Cache<String, TopDocs> hits;
+  private volatile Cache<String, String> responses;
+  private int size;
+  private int responseMB;
+  private int timeToLive;
+
+  private ResultCache(int size, int responseMB, int timeToLive) {
+    build(size, responseMB, timeToLive);
+    C.addReloadListener(this::reconfigure);
+  }
+
+  private void build(int size, int responseMB, int timeToLive) {
+    this.size = size;
+    this.responseMB = responseMB;
+    this.timeToLive = timeToLive;
+    hits = CacheBuilder.newBuilder().maximumSize(size)
+      .expireAfterWrite(timeToLive, TimeUnit.SECONDS).recordStats().build();
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+      .expireAfterWrite(timeToLive, TimeUnit.SECONDS).recordStats();
+    if (size > 0) {
+      // A string takes two bytes per character
+      responses = builder.maximumWeight(responseMB * MEGABYTE)
+        .weigher((String key, String response) -> 2 * response.length())
+        .build();
+    } else {
+      responses = builder.maximumSize(0).build();
+    }
+  }
+
+  /**
+   * Replace the caches by empty ones if their limits were changed.
+   */
+  private synchronized void reconfigure() {
+    int size = C.Serve.cacheSize();
+    int responseMB = C.Serve.cacheResponseMB();
+    int timeToLive = C.Serve.cacheTimeToLive();
+    if (size != this.size || responseMB != this.responseMB ||
+      timeToLive != this.timeToLive) {
+      build(size, responseMB, timeToLive);
+    }
+  }
+
+  /**
+   * Ensure that there is <i>one</i> instance of the cache.
+   *
+   * @return {@link ResultCache}
+   */
+  public static synchronized ResultCache getInstance() {
+    if (instance == null) {
+      instance = new ResultCache(C.Serve.cacheSize(),
+        C.Serve.cacheResponseMB(), C.Serve.cacheTimeToLive());
+    }
+    return instance;
+  }
+
+  /**
+   * Build the key of a cache entry.
+   *
+   * @param reader   the result was computed on
+   * @param endpoint name of the endpoint (or kind of result)
+   * @param query    canonical form of the query parameters
+   * @param extra    further parameters the result depends on
+   * @return key or null if results of the reader cannot be cached
+   */
+  public static String key(IndexReader reader, String endpoint, String query,
+                           Object extra) {
+    if (query == null || !(reader instanceof DirectoryReader)) {
+      return null;
+    }
+    return ((DirectoryReader) reader).getVersion() + "|" + endpoint + "|" +
+      extra + "|" + query;
+  }
+
+  /**
+   * @param key of the entry, may be null
+   * @return cached hits or null
+   */
+  public TopDocs getHits(String key) {
+    return key != null ? hits.getIfPresent(key) : null;
+  }
+
+  /**
+   * @param key  of the entry, may be null
+   * @param docs hits to be cached
+   */
+  public void putHits(String key, TopDocs docs) {
+    if (key != null) {
+      hits.put(key, docs);
+    }
+  }
+
+  /**
+   * @param key of the entry, may be null
+   * @return cached response or null
+   */
+  public String getResponse(String key) {
+    return key != null ? responses.getIfPresent(key) : null;
+  }
+
+  /**
+   * @param key      of the entry, may be null
+   * @param response rendered response to be cached
+   */
+  public void putResponse(String key, String response) {
+    if (key != null) {
+      responses.put(key, response);
+    }
+  }
+
+  /**
+   * Drop all entries, e.g. because the index reader was reopened.
+   */
+  public void invalidateAll() {
+    hits.invalidateAll();
+    responses.invalidateAll();
+  }
+
+  /**
+   * @return statistics of the hit cache
+   */
+  public CacheStats hitStats() {
+    return hits.stats();
+  }
+
+  /**
+   * @return statistics of the response cache
+   */
+  public CacheStats responseStats() {
+    return responses.stats();
+  }
+
+  /**
+   * @return number of cached hits
+   */
+  public long hitSize() {
+    return hits.size();
+  }
+
+  /**
+   * @return number of cached responses
+   */
+  public long responseSize() {
+    return responses.size();
+  }
+}
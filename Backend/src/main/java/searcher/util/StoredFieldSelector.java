@@ -0,0 +1,105 @@
+package searcher.util;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.StoredFieldVisitor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Load only the declared stored fields of a document. Other fields are
+ * skipped without being copied and the visit stops as soon as all declared
+ * fields were seen. A selector is reused for all documents of a request, it
+ * is not thread-safe.
+ */
+public class StoredFieldSelector extends StoredFieldVisitor {
+
+  private final String[] fields;
+  private final byte[][] binaryValues;
+  private final String[] stringValues;
+  private int remaining;
+
+  /**
+   * @param fields names of the stored fields to be loaded
+   */
+  public StoredFieldSelector(String... fields) {
+    this.fields = fields;
+    this.binaryValues = new byte[fields.length][];
+    this.stringValues = new String[fields.length];
+  }
+
+  /**
+   * Load the declared fields of a document, replacing the values of the
+   * previous one.
+   *
+   * @param reader to load the document from
+   * @param doc    id of the document
+   * @throws IOException in case reading the stored fields failed
+   */
+  public void load(IndexReader reader, int doc) throws IOException {
+    reset();
+    reader.document(doc, this);
+  }
+
+  /**
+   * Drop the values of the previous document before visiting the next one.
+   */
+  public void reset() {
+    Arrays.fill(binaryValues, null);
+    Arrays.fill(stringValues, null);
+    remaining = fields.length;
+  }
+
+  /**
+   * @param field declared field
+   * @return binary value of the field, null if it is missing or a string
+   */
+  public byte[] binaryValue(String field) {
+    return binaryValues[index(field)];
+  }
+
+  /**
+   * @param field declared field
+   * @return string value of the field, null if it is missing or binary
+   */
+  public String stringValue(String field) {
+    return stringValues[index(field)];
+  }
+
+  @Override
+  public Status needsField(FieldInfo fieldInfo) {
+    if (remaining == 0) {
+      return Status.STOP;
+    }
+    for (String field : fields) {
+      if (field.equals(fieldInfo.name)) {
+        return Status.YES;
+      }
+    }
+    return Status.NO;
+  }
+
+  @Override
+  public void binaryField(FieldInfo fieldInfo, byte[] value) {
+    binaryValues[index(fieldInfo.name)] = value;
+    --remaining;
+  }
+
+  @Override
+  public void stringField(FieldInfo fieldInfo, byte[] value) {
+    stringValues[index(fieldInfo.name)] =
+      new String(value, StandardCharsets.UTF_8);
+    --remaining;
+  }
+
+  private int index(String field) {
+    for (int i = 0; i < fields.length; ++i) {
+      if (fields[i].equals(field)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Field not declared: " + field);
+  }
+}
@@ -0,0 +1,217 @@
+package searcher.util;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.JSONRecordWriter;
+import de.uni_stuttgart.searchfilter.common.record.RecordDecoder;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decode the stored records of the documents of a reader, see {@link
+ * RecordDecoder}. The text data is a stored field, the small visualization
+ * record is kept in binary doc values. The {@link RecordDictionary} is read
+ * from the user data of the reader's commit once and dropped when the reader
+ * is closed. Documents of indexes written before the records were introduced
+ * store JSON strings, these are passed on as they are. An instance is used
+ * for one request, it is not thread-safe.
+ */
+public class StoredRecords {
+
+  private static final Map<IndexReader.CacheKey, RecordDictionary>
+    dictionaries = new ConcurrentHashMap<>();
+
+  private final RecordDecoder decoder;
+  private final JSONRecordWriter json = new JSONRecordWriter();
+  // Visualization records of the current range of hits
+  private byte[] buffer = new byte[0];
+  private int size;
+  private int[] starts = new int[0];
+  private int[] lengths = new int[0];
+  private String[] legacy = new String[0];
+
+  /**
+   * @param reader the documents are loaded from
+   * @throws IOException in case reading the commit failed
+   */
+  public StoredRecords(IndexReader reader) throws IOException {
+    this.decoder = new RecordDecoder(dictionary(reader));
+  }
+
+  /**
+   * Return a stored field of a document as JSON.
+   *
+   * @param document loaded with the field
+   * @param field    name of the stored field
+   * @return JSON object, null if the document has no such field
+   */
+  public String json(StoredFieldSelector document, String field) {
+    byte[] bytes = document.binaryValue(field);
+    if (bytes == null) {
+      return document.stringValue(field);
+    }
+    return json(bytes, 0, bytes.length);
+  }
+
+  /**
+   * @param bytes  containing a record
+   * @param offset of the record
+   * @param length of the record
+   * @return the record as JSON
+   */
+  public String json(byte[] bytes, int offset, int length) {
+    decoder.reset(bytes, offset, length);
+    return decoder.toJSON(json);
+  }
+
+  /**
+   * Write the visualization records of a range of hits as JSON objects
+   * separated by commas, in the order of the hits. The records are read from
+   * the binary doc values in doc id order, without touching the stored
+   * fields, and copied into a buffer that is reused for the next range.
+   * Documents of older indexes load their stored visualization field
+   * instead.
+   *
+   * @param reader  the hits were found in
+   * @param hits    all hits
+   * @param from    index of the first hit (inclusive)
+   * @param to      index of the last hit (exclusive)
+   * @param delimit true if the first object follows a previous one
+   * @param writer  to write the objects to
+   * @return number of objects written, documents without visualization are
+   * skipped
+   * @throws IOException in case reading the records or writing failed
+   */
+  public int writeVisualizations(IndexReader reader, ScoreDoc[] hits,
+                                 int from, int to, boolean delimit,
+                                 Writer writer) throws IOException {
+    int count = to - from;
+    if (starts.length < count) {
+      starts = new int[count];
+      lengths = new int[count];
+      legacy = new String[count];
+    }
+    Arrays.fill(lengths, 0, count, -1);
+    Arrays.fill(legacy, 0, count, null);
+    size = 0;
+    HitLoader.forEachLeaf(reader, hits, from, to,
+      (leaf, order, start, end) -> {
+        BinaryDocValues values =
+          leaf.reader().getBinaryDocValues(C.FieldNames.VISUALIZATION);
+        if (values == null) {
+          // Segment written before the visualization moved to doc values
+          new HitLoader(reader, C.FieldNames.VISUALIZATION).load(hits, leaf,
+            order, start, end, (hit, document) ->
+              buffer(hit - from, document));
+          return;
+        }
+        StoredFieldSelector selector = null;
+        for (int i = start; i < end; ++i) {
+          int leafDoc = hits[order[i]].doc - leaf.docBase;
+          if (values.advanceExact(leafDoc)) {
+            BytesRef bytes = values.binaryValue();
+            buffer(order[i] - from, bytes.bytes, bytes.offset, bytes.length);
+          } else {
+            if (selector == null) {
+              selector = new StoredFieldSelector(C.FieldNames.VISUALIZATION);
+            }
+            selector.load(reader, hits[order[i]].doc);
+            buffer(order[i] - from, selector);
+          }
+        }
+      });
+    int written = 0;
+    for (int i = 0; i < count; ++i) {
+      if (lengths[i] < 0 && legacy[i] == null) {
+        continue;
+      }
+      if (delimit || written > 0) {
+        writer.write(',');
+      }
+      if (legacy[i] != null) {
+        writer.write(legacy[i]);
+      } else {
+        decoder.reset(buffer, starts[i], lengths[i]);
+        decoder.writeJSON(json, writer);
+      }
+      ++written;
+    }
+    return written;
+  }
+
+  private void buffer(int index, StoredFieldSelector document) {
+    byte[] bytes = document.binaryValue(C.FieldNames.VISUALIZATION);
+    if (bytes != null) {
+      buffer(index, bytes, 0, bytes.length);
+    } else {
+      legacy[index] = document.stringValue(C.FieldNames.VISUALIZATION);
+    }
+  }
+
+  private void buffer(int index, byte[] bytes, int offset, int length) {
+    if (buffer.length < size + length) {
+      buffer = Arrays.copyOf(buffer, Math.max(size + length,
+        2 * buffer.length));
+    }
+    System.arraycopy(bytes, offset, buffer, size, length);
+    starts[index] = size;
+    lengths[index] = length;
+    size += length;
+  }
+
+  /**
+   * Start decoding a stored field of a document.
+   *
+   * @param document loaded with the field
+   * @param field    name of the stored field
+   * @return decoder of the record, null if the field is missing or stores
+   * JSON
+   */
+  public RecordDecoder decode(StoredFieldSelector document, String field) {
+    byte[] bytes = document.binaryValue(field);
+    if (bytes == null) {
+      return null;
+    }
+    decoder.reset(bytes, 0, bytes.length);
+    return decoder;
+  }
+
+  /**
+   * @param reader of a commit
+   * @return dictionary of the commit, empty if it has none
+   * @throws IOException in case reading the commit failed
+   */
+  private static RecordDictionary dictionary(IndexReader reader)
+    throws IOException {
+    if (!(reader instanceof DirectoryReader)) {
+      return new RecordDictionary();
+    }
+    IndexReader.CacheHelper helper = reader.getReaderCacheHelper();
+    if (helper == null) {
+      return read((DirectoryReader) reader);
+    }
+    RecordDictionary dictionary = dictionaries.get(helper.getKey());
+    if (dictionary == null) {
+      dictionary = read((DirectoryReader) reader);
+      if (dictionaries.putIfAbsent(helper.getKey(), dictionary) == null) {
+        helper.addClosedListener(dictionaries::remove);
+      }
+    }
+    return dictionary;
+  }
+
+  private static RecordDictionary read(DirectoryReader reader)
+    throws IOException {
+    return RecordDictionary.read(
+      reader.getIndexCommit().getUserData().entrySet());
+  }
+}
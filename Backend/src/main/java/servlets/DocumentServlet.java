@@ -1,5 +1,6 @@
 package servlets;
 
+import access.AdmissionControl;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 import searcher.DocumentSearcher;
 
@@ -17,6 +18,7 @@ public class DocumentServlet extends MainServlet {
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
       throws IOException {
     response.setContentType(C.ContentTypes.JSON);
-    respond(request, response, new DocumentSearcher());
+    respond(request, response, new DocumentSearcher(),
+      AdmissionControl.getInstance().interactive());
   }
 }
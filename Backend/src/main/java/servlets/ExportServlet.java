@@ -1,5 +1,6 @@
 package servlets;
 
+import access.AdmissionControl;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 import searcher.ExportSearcher;
 
@@ -13,6 +14,7 @@ public class ExportServlet extends MainServlet {
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
       throws IOException {
     response.setContentType(C.ContentTypes.CSV);
-    respond(request, response, new ExportSearcher());
+    respond(request, response, new ExportSearcher(),
+      AdmissionControl.getInstance().export());
   }
 }
@@ -0,0 +1,24 @@
+package servlets;
+
+import access.AdmissionControl;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import searcher.FacetSearcher;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+public class FacetServlet extends MainServlet {
+  private static final long serialVersionUID = 1L;
+
+  public FacetServlet() {
+    super();
+  }
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws IOException {
+    response.setContentType(C.ContentTypes.JSON);
+    respond(request, response, new FacetSearcher(),
+      AdmissionControl.getInstance().interactive());
+  }
+}
@@ -1,5 +1,6 @@
 package servlets;
 
+import access.AdmissionControl;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 import searcher.FullTextSearcher;
 
@@ -17,6 +18,7 @@ public class FullTextServlet extends MainServlet {
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
     throws IOException {
     response.setContentType(C.ContentTypes.JSON);
-    respond(request, response, new FullTextSearcher());
+    respond(request, response, new FullTextSearcher(),
+      AdmissionControl.getInstance().fullText());
   }
 }
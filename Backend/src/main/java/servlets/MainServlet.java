@@ -1,5 +1,6 @@
 package servlets;
 
+import access.AdmissionControl;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
 import searcher.Searcher;
 
@@ -12,35 +13,67 @@ import java.util.Map;
 
 public abstract class MainServlet extends HttpServlet {
   private static final long serialVersionUID = 1L;
-  private PrintWriter writer;
-  private Map<String, String[]> queryParameterMap;
+
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+  private static final String RETRY_AFTER = "Retry-After";
 
   MainServlet() {
     super();
   }
 
-  private void prepareResponse(HttpServletRequest request,
-                               HttpServletResponse response)
+  private PrintWriter prepareResponse(HttpServletResponse response)
     throws IOException {
     response.setCharacterEncoding(C.ContentEncoding.UTF8);
-    writer = response.getWriter();
-    queryParameterMap = request.getParameterMap();
+    return response.getWriter();
   }
 
-  private String computeResponse(Searcher queryAnalyzer) {
-    return queryAnalyzer.search(queryParameterMap);
+  private void computeResponse(Searcher queryAnalyzer,
+                               Map<String, String[]> queryParameterMap,
+                               PrintWriter writer) {
+    queryAnalyzer.search(queryParameterMap, writer);
   }
 
-  private void finishResponse(HttpServletResponse response, String result) {
-    writer.write(result);
+  private void finishResponse(PrintWriter writer) {
     writer.close();
   }
 
   void respond(HttpServletRequest request, HttpServletResponse response,
                Searcher searcher) throws IOException {
-    prepareResponse(request, response);
-    String result = computeResponse(searcher);
-    finishResponse(response, result);
+    // The servlet instance is shared by all request threads, so the writer
+    // and the parameters must not be kept in fields
+    PrintWriter writer = prepareResponse(response);
+    computeResponse(searcher, request.getParameterMap(), writer);
+    finishResponse(writer);
+  }
+
+  /**
+   * Respond once the pool admits the search. If the queue of the pool is
+   * full, the request is rejected with 429, if it waited too long with 503.
+   * Both ask the client to retry after <i>serve.admission.retryAfter</i>
+   * seconds.
+   *
+   * @param request  of the client
+   * @param response to the client
+   * @param searcher computing the response
+   * @param pool     the search must be admitted by
+   * @throws IOException in case writing the response failed
+   */
+  void respond(HttpServletRequest request, HttpServletResponse response,
+               Searcher searcher, AdmissionControl.Pool pool)
+    throws IOException {
+    AdmissionControl.Admission admission = pool.acquire();
+    if (admission != AdmissionControl.Admission.ADMITTED) {
+      response.setHeader(RETRY_AFTER,
+        Integer.toString(C.Serve.admissionRetryAfter()));
+      response.sendError(admission == AdmissionControl.Admission.QUEUE_FULL ?
+        SC_TOO_MANY_REQUESTS : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    try {
+      respond(request, response, searcher);
+    } finally {
+      pool.release();
+    }
   }
 
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
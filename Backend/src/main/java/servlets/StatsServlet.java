@@ -0,0 +1,22 @@
+package servlets;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import searcher.StatsSearcher;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+public class StatsServlet extends MainServlet {
+  private static final long serialVersionUID = 1L;
+
+  public StatsServlet() {
+    super();
+  }
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws IOException {
+    response.setContentType(C.ContentTypes.JSON);
+    respond(request, response, new StatsSearcher());
+  }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import searcher.util.CSVStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding export records to a {@link CSVStringBuilder}, for records with and
+ * without characters that need to be quoted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CSVStringBuilderBenchmark {
+
+  private static final int RECORDS = 500;
+
+  private final CSVStringBuilder builder = new CSVStringBuilder();
+  private String[] plain;
+  private String[] quoted;
+
+  @Setup
+  public void setUp() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 300; ++i) {
+      text.append("influenza cholera fever ");
+    }
+    plain = new String[]{text.toString(), "1865-05-26", "The Times", "London",
+      "51.51", "-0.13", "http://example.org/1", "en", "corpA", "3", "Title 1"};
+    quoted = plain.clone();
+    quoted[0] = text + "\"quoted\", text";
+    quoted[2] = "Times, The";
+  }
+
+  @Benchmark
+  public int addPlainRecords() {
+    return add(plain);
+  }
+
+  @Benchmark
+  public int addQuotedRecords() {
+    return add(quoted);
+  }
+
+  /**
+   * Add a flush window of records, as the export does before writing them.
+   *
+   * @param record to be added
+   * @return number of characters of the records
+   */
+  private int add(String[] record) {
+    builder.clear();
+    for (int i = 0; i < RECORDS; ++i) {
+      builder.addRecord(record);
+    }
+    return builder.length();
+  }
+}
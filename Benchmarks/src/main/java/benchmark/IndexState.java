@@ -0,0 +1,54 @@
+package benchmark;
+
+import access.SearcherManagerSingleton;
+import benchmark.fixture.IndexFixture;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic index shared by all threads of a trial. The result cache is
+ * disabled by default, otherwise every invocation after the first would
+ * only measure a cache lookup.
+ */
+@State(Scope.Benchmark)
+public class IndexState {
+
+  @Param({"20000"})
+  public int documents;
+
+  @Param({"0"})
+  public int resultCacheSize;
+
+  private Path directory;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("searchfilter-benchmark");
+    Map<String, String> overrides = new HashMap<>();
+    overrides.put("serve.cache.size", Integer.toString(resultCacheSize));
+    IndexFixture.configure(directory, overrides);
+    IndexFixture.index(directory, documents, 42);
+    SearcherManagerSingleton.create();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    SearcherManagerSingleton.deleteInstance();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path ->
+        path.toFile().delete());
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import benchmark.fixture.CorpusFixture;
+import benchmark.fixture.IndexFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Decompressing, parsing and building the documents of an input file, per
+ * document and for each input format. The file contains the same records in
+ * both formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngestionBenchmark {
+
+  private static final int RECORDS = 2000;
+
+  @Param({CorpusFixture.GZIP_CSV, CorpusFixture.GZIP_JSON})
+  public String type;
+
+  private Path directory;
+  private File file;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("searchfilter-benchmark");
+    IndexFixture.configure(directory, Collections.emptyMap());
+    IndexFixture.writeResources(directory);
+    file = CorpusFixture.write(directory, type, RECORDS, 42);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path ->
+        path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int buildDocuments() throws IOException, InterruptedException {
+    return CorpusFixture.build(type, file);
+  }
+}
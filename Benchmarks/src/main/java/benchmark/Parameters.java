@@ -0,0 +1,38 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * URL parameter maps of the benchmarked requests.
+ */
+class Parameters {
+
+  private Parameters() {}
+
+  /**
+   * @param terms primary search terms, comma separated
+   * @return parameters of a search for the terms only
+   */
+  static Map<String, String[]> primary(String terms) {
+    Map<String, String[]> parameters = new HashMap<>();
+    parameters.put("primary", new String[]{terms});
+    return parameters;
+  }
+
+  /**
+   * @param terms primary search terms, comma separated
+   * @return parameters of a search for the terms with all filters set
+   */
+  static Map<String, String[]> filtered(String terms) {
+    Map<String, String[]> parameters = primary(terms);
+    parameters.put("selections", new String[]{"hospital,quarantine"});
+    parameters.put("exclusions", new String[]{"election"});
+    parameters.put("length", new String[]{"100,400"});
+    parameters.put("time", new String[]{"1850-01-01,1890-12-31"});
+    parameters.put("latitude", new String[]{"-40.0,60.0"});
+    parameters.put("longitude", new String[]{"-80.0,180.0"});
+    parameters.put("language", new String[]{"en"});
+    return parameters;
+  }
+}
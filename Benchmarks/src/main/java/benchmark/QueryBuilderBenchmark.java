@@ -0,0 +1,49 @@
+package benchmark;
+
+import benchmark.fixture.IndexFixture;
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import searcher.util.LuceneQueryBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link Query} from the URL parameters of a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryBuilderBenchmark {
+
+  private Map<String, String[]> primary;
+  private Map<String, String[]> filtered;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    IndexFixture.configure(Files.createTempDirectory("searchfilter-benchmark"),
+      Collections.emptyMap());
+    primary = Parameters.primary("influenza");
+    filtered = Parameters.filtered("influenza,cholera");
+  }
+
+  @Benchmark
+  public Query buildPrimary() {
+    return new LuceneQueryBuilder(primary).build();
+  }
+
+  @Benchmark
+  public Query buildFiltered() {
+    return new LuceneQueryBuilder(filtered).build();
+  }
+}
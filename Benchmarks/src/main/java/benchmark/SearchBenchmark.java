@@ -0,0 +1,80 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import searcher.DocumentSearcher;
+import searcher.ExportSearcher;
+import searcher.FullTextSearcher;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Complete requests of the search endpoints on a synthetic index: building
+ * the query, searching and rendering the response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+  @Param({"influenza", "cholera,fever"})
+  public String terms;
+
+  @Param({"false", "true"})
+  public boolean filtered;
+
+  private Map<String, String[]> parameters;
+  private Map<String, String[]> pageParameters;
+
+  @Setup(Level.Trial)
+  public void setUp(IndexState index) {
+    parameters = filtered ? Parameters.filtered(terms) :
+      Parameters.primary(terms);
+    pageParameters = filtered ? Parameters.filtered(terms) :
+      Parameters.primary(terms);
+    pageParameters.put("page", new String[]{"1"});
+  }
+
+  @Benchmark
+  public String documentSearch(IndexState index) {
+    return new DocumentSearcher().search(parameters);
+  }
+
+  @Benchmark
+  public String fullTextSearch(IndexState index) {
+    return new FullTextSearcher().search(pageParameters);
+  }
+
+  @Benchmark
+  public boolean exportSearch(IndexState index) {
+    // The CSV is streamed, so only the writing is measured, not holding the
+    // complete export in memory
+    PrintWriter writer = new PrintWriter(new DiscardingWriter());
+    new ExportSearcher().search(parameters, writer);
+    return writer.checkError();
+  }
+
+  /**
+   * A writer that discards everything written to it.
+   */
+  private static class DiscardingWriter extends Writer {
+    @Override
+    public void write(char[] buffer, int offset, int length) {}
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
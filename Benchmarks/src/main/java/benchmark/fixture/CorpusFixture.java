@@ -0,0 +1,156 @@
+package benchmark.fixture;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import main.ZippedCSVDocumentCreator;
+import main.ZippedJSONDocumentCreator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write synthetic input files in the formats of the preprocessing and build
+ * their documents, to measure the ingestion without the real corpora.
+ */
+public class CorpusFixture {
+
+  public static final String GZIP_CSV = "gzipcsv";
+  public static final String GZIP_JSON = "gzipjson";
+
+  private static final int CSV_COLUMNS = 43;
+
+  private CorpusFixture() {}
+
+  /**
+   * Write a file of synthetic records. Both formats contain the same records
+   * for the same seed.
+   *
+   * @param directory scratch directory passed to {@link
+   *                  IndexFixture#writeResources}
+   * @param type      {@link #GZIP_CSV} or {@link #GZIP_JSON}
+   * @param records   number of records
+   * @param seed      of the random content
+   * @return the file
+   * @throws IOException in case writing the file failed
+   */
+  public static File write(Path directory, String type, int records,
+                           long seed) throws IOException {
+    SyntheticDocumentCreator creator = new SyntheticDocumentCreator(
+      new RecordDictionary(), seed);
+    Random random = new Random(seed);
+    Path path = directory.resolve(type.equals(GZIP_CSV) ? "records.csv.gz" :
+      "records.json.gz");
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+      Files.newOutputStream(path)), StandardCharsets.UTF_8)) {
+      if (type.equals(GZIP_CSV)) {
+        String[] header = new String[CSV_COLUMNS];
+        for (int i = 0; i < CSV_COLUMNS; ++i) {
+          header[i] = "c" + i;
+        }
+        CSVPrinter printer = CSVFormat.DEFAULT.withHeader(header).print(writer);
+        for (int id = 0; id < records; ++id) {
+          printer.printRecord((Object[]) row(creator, random, id));
+        }
+        printer.flush();
+      } else {
+        for (int id = 0; id < records; ++id) {
+          writer.write(json(row(creator, random, id)).toString());
+          writer.write('\n');
+        }
+      }
+    }
+    return path.toFile();
+  }
+
+  /**
+   * Read a file and build the documents of all its records, like the
+   * builders of the {@link main.IngestionPipeline} do.
+   *
+   * @param type {@link #GZIP_CSV} or {@link #GZIP_JSON}
+   * @param file written by {@link #write}
+   * @return number of documents
+   * @throws IOException          in case reading the file failed
+   * @throws InterruptedException never, the records are not queued
+   */
+  public static int build(String type, File file)
+    throws IOException, InterruptedException {
+    int[] documents = {0};
+    if (type.equals(GZIP_CSV)) {
+      ZippedCSVDocumentCreator creator = new ZippedCSVDocumentCreator(
+        new RecordDictionary());
+      ZippedCSVDocumentCreator.read(file, record -> {
+        if (creator.create(record) != null) {
+          ++documents[0];
+        }
+      });
+    } else {
+      ZippedJSONDocumentCreator creator = new ZippedJSONDocumentCreator(
+        new RecordDictionary());
+      ZippedJSONDocumentCreator.read(file, line -> {
+        if (creator.create(line) != null) {
+          ++documents[0];
+        }
+      });
+    }
+    return documents[0];
+  }
+
+  /**
+   * @return CSV row of a record, the columns as in {@link C.CSV}
+   */
+  private static String[] row(SyntheticDocumentCreator creator, Random random,
+                              int id) {
+    String[] row = new String[CSV_COLUMNS];
+    Arrays.fill(row, "");
+    row[C.CSV.ID] = Integer.toString(id);
+    row[C.CSV.DATE] = String.format("%d-%02d-%02d", 1840 + random.nextInt(60),
+      1 + random.nextInt(12), 1 + random.nextInt(28));
+    row[C.CSV.TEXT] = creator.text(50 + random.nextInt(450));
+    row[C.CSV.OPEN_DOCUMENT] = random.nextInt(10) > 0 ? "True" : "False";
+    row[C.CSV.LANGUAGE] = pick(random, SyntheticDocumentCreator.LANGUAGES);
+    row[C.CSV.PLACE_OF_PUBLICATION] =
+      pick(random, SyntheticDocumentCreator.PLACES);
+    row[C.CSV.SOURCE] = pick(random, SyntheticDocumentCreator.PLACES);
+    row[C.CSV.LINK] = "http://example.org/" + id;
+    row[C.CSV.PUBLISHER] = pick(random, SyntheticDocumentCreator.PUBLISHERS);
+    row[C.CSV.CLUSTER] = Integer.toString(random.nextInt(10));
+    row[C.CSV.CORPUS] = pick(random, SyntheticDocumentCreator.CORPORA);
+    row[C.CSV.TITLE] = "Title " + id;
+    return row;
+  }
+
+  /**
+   * @return JSON lines record with the values of a CSV row
+   */
+  private static JSONObject json(String[] row) {
+    JSONObject record = new JSONObject();
+    record.put(C.JSON.ID, Long.parseLong(row[C.CSV.ID]));
+    record.put(C.JSON.DATE, row[C.CSV.DATE]);
+    record.put(C.JSON.TEXT, row[C.CSV.TEXT]);
+    record.put(C.JSON.OPEN_DOCUMENT, row[C.CSV.OPEN_DOCUMENT].equals("True"));
+    record.put(C.JSON.LANGUAGE, row[C.CSV.LANGUAGE]);
+    record.put(C.JSON.PLACE_OF_PUBLICATION, row[C.CSV.PLACE_OF_PUBLICATION]);
+    record.put(C.JSON.SOURCE, row[C.CSV.SOURCE]);
+    record.put(C.JSON.LINK, row[C.CSV.LINK]);
+    record.put(C.JSON.PUBLISHER, row[C.CSV.PUBLISHER]);
+    record.put(C.JSON.CLUSTER, Long.parseLong(row[C.CSV.CLUSTER]));
+    record.put(C.JSON.CORPUS, row[C.CSV.CORPUS]);
+    record.put(C.JSON.TITLE, row[C.CSV.TITLE]);
+    return record;
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,108 @@
+package benchmark.fixture;
+
+import access.IndexWriteSingleton;
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Set up a configuration and a synthetic index in a scratch directory, such
+ * that the searchers can be run without the real corpora.
+ */
+public class IndexFixture {
+
+  private static final String CONFIGURATION = "config.properties";
+  private static final String LOCATIONS = "locations.tsv";
+  private static final String STOPWORDS = "stopwords.txt";
+  private static final String INDEX = "index";
+
+  private IndexFixture() {}
+
+  /**
+   * Write a configuration to the directory and load it. It is the
+   * configuration of the backend with all paths pointing into the directory.
+   *
+   * @param directory scratch directory
+   * @param overrides properties to be set in addition
+   * @throws IOException in case writing the configuration failed
+   */
+  public static void configure(Path directory, Map<String, String> overrides)
+    throws IOException {
+    Properties properties = new Properties();
+    try (InputStream inputStream =
+           IndexFixture.class.getResourceAsStream("/" + CONFIGURATION)) {
+      properties.load(inputStream);
+    }
+    properties.setProperty("file.path.project", directory.toString() + "/");
+    // The other paths are relative to the project path
+    properties.setProperty("file.path.index", INDEX + "/");
+    properties.setProperty("file.locations", LOCATIONS);
+    properties.setProperty("file.path.stopwords", STOPWORDS);
+    properties.putAll(overrides);
+    Path configuration = directory.resolve(CONFIGURATION);
+    try (OutputStream outputStream = Files.newOutputStream(configuration)) {
+      properties.store(outputStream, "Benchmark configuration");
+    }
+    C.create(configuration.toString());
+  }
+
+  /**
+   * Index synthetic documents into the configured index location.
+   *
+   * @param directory scratch directory passed to {@link #configure}
+   * @param documents number of documents
+   * @param seed      of the random content
+   * @throws IOException in case writing the index failed
+   */
+  public static void index(Path directory, int documents, long seed)
+    throws IOException {
+    writeResources(directory);
+    IndexWriter writer = IndexWriteSingleton.getInstance();
+    RecordDictionary dictionary = new RecordDictionary();
+    SyntheticDocumentCreator creator =
+      new SyntheticDocumentCreator(dictionary, seed);
+    for (int id = 0; id < documents; ++id) {
+      writer.addDocument(creator.create(id));
+    }
+    writer.setLiveCommitData(dictionary.userData().entrySet());
+    writer.commit();
+    IndexWriteSingleton.deleteInstance();
+  }
+
+  /**
+   * Write the locations and stopwords files of the configuration.
+   *
+   * @param directory scratch directory passed to {@link #configure}
+   * @throws IOException in case writing the files failed
+   */
+  public static void writeResources(Path directory) throws IOException {
+    writeLocations(directory.resolve(LOCATIONS));
+    Files.write(directory.resolve(STOPWORDS),
+      "the\nand\nof\n".getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void writeLocations(Path path) throws IOException {
+    try (PrintWriter writer = new PrintWriter(
+      Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+      // Columns as in the locations file: the place is in the third, its
+      // coordinates in the fifth and sixth column
+      writer.println("id\tsource\tplace\tcountry\tlatitude\tlongitude");
+      double[][] coordinates = {{51.51, -0.13}, {48.86, 2.35}, {52.52, 13.40},
+        {-33.87, 151.21}, {-36.85, 174.76}, {42.36, -71.06}};
+      for (int i = 0; i < coordinates.length; ++i) {
+        writer.println(i + "\t-\t" + SyntheticDocumentCreator.PLACES[i] +
+          "\t-\t" + coordinates[i][0] + "\t" + coordinates[i][1]);
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package benchmark.fixture;
+
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import main.DocumentCreator;
+import org.apache.lucene.document.Document;
+
+import java.util.Random;
+
+/**
+ * Create documents with random but reproducible content. Terms follow a
+ * skewed distribution over a fixed vocabulary, such that a few terms (like
+ * <i>influenza</i> or <i>cholera</i>) occur in many documents and most terms
+ * are rare, as in the newspaper corpora.
+ */
+public class SyntheticDocumentCreator extends DocumentCreator {
+
+  /**
+   * Frequent terms, in decreasing order of frequency
+   */
+  static final String[] TOPICS = {"government", "parliament", "railway",
+    "harbour", "market", "price", "wheat", "colony", "election", "steam",
+    "fever", "cholera", "influenza", "hospital", "epidemic", "quarantine"};
+
+  static final String[] PLACES = {"London", "Paris", "Berlin", "Sydney",
+    "Auckland", "Boston", "Nowhere"};
+
+  static final String[] LANGUAGES = {"en", "en", "en", "fr", "de"};
+  static final String[] CORPORA = {"corpA", "corpB", "corpC"};
+  static final String[] PUBLISHERS = {"The Times", "Le Temps",
+    "Berliner Zeitung", "The Sydney Herald"};
+  private static final int VOCABULARY = 20000;
+
+  private final Random random;
+
+  /**
+   * @param dictionary to encode the stored records with
+   * @param seed       of the random content
+   */
+  SyntheticDocumentCreator(RecordDictionary dictionary, long seed) {
+    super(dictionary);
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Build the next document.
+   *
+   * @param id of the document
+   * @return document
+   */
+  Document create(int id) {
+    newDocument();
+    String fullText = text(50 + random.nextInt(450));
+    addIdentification(Integer.toString(id));
+    addTextLength(fullText);
+    addDate(String.format("%d-%02d-%02d", 1840 + random.nextInt(60),
+      1 + random.nextInt(12), 1 + random.nextInt(28)));
+    addText(fullText);
+    addPublisher(PUBLISHERS[random.nextInt(PUBLISHERS.length)]);
+    addTitle("Title " + id);
+    addCluster(Integer.toString(random.nextInt(10)));
+    addLink("http://example.org/" + id);
+    addLocation(PLACES[random.nextInt(PLACES.length)], null);
+    addLanguage(LANGUAGES[random.nextInt(LANGUAGES.length)]);
+    addCorpus(CORPORA[random.nextInt(CORPORA.length)]);
+    return finishDocument();
+  }
+
+  /**
+   * @param length number of words
+   * @return random text
+   */
+  String text(int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; ++i) {
+      if (i > 0) {
+        builder.append(' ');
+      }
+      // Cubing a uniform number skews the distribution towards small ranks
+      double uniform = random.nextDouble();
+      int rank = (int) (uniform * uniform * uniform * VOCABULARY);
+      builder.append(rank < TOPICS.length ? TOPICS[rank] : word(rank));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @param rank of the word in the vocabulary
+   * @return pronounceable word that is unique for the rank
+   */
+  private static String word(int rank) {
+    final String consonants = "bcdfghklmnprstvw";
+    final String vowels = "aeiou";
+    StringBuilder builder = new StringBuilder();
+    int value = rank;
+    do {
+      builder.append(consonants.charAt(value % consonants.length()));
+      value /= consonants.length();
+      builder.append(vowels.charAt(value % vowels.length()));
+      value /= vowels.length();
+    } while (value > 0);
+    return builder.toString();
+  }
+}
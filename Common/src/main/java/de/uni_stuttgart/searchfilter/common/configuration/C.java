@@ -1,38 +1,163 @@
 package de.uni_stuttgart.searchfilter.common.configuration;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Central configuration. The properties file is parsed into an immutable
+ * {@link Snapshot} of typed values that is published through a volatile
+ * reference, so the accessors read a field instead of parsing the property
+ * on every call. {@link #watch(int)} reloads the snapshot when the file
+ * changes. A file with a missing or malformed property is rejected and the
+ * previous snapshot stays in place. Components that were built from the
+ * configuration, like pools and caches, follow a reload through a {@link
+ * #addReloadListener(Runnable) listener}.
+ */
 public class C {
+  private static final Logger log = Logger.getLogger(C.class.getName());
 
-  private static Properties properties = null;
+  private static volatile Snapshot snapshot = null;
+  private static Path path = null;
+  private static FileTime lastModified = null;
+  private static ScheduledExecutorService watcher = null;
+  private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
 
-  public static void create(String path) throws IOException {
-    properties = new Properties();
-    InputStream inputStream = new FileInputStream(path);
-    properties.load(inputStream);
+  /**
+   * Load the configuration.
+   *
+   * @param path to the properties file
+   * @throws IOException              in case reading the file failed
+   * @throws IllegalArgumentException in case a property is missing or
+   *                                  malformed
+   */
+  public static synchronized void create(String path) throws IOException {
+    Path file = Paths.get(path);
+    // Taken before reading, so a concurrent write triggers another reload
+    FileTime modified = Files.getLastModifiedTime(file);
+    snapshot = new Snapshot(load(file));
+    C.path = file;
+    lastModified = modified;
   }
 
-  private static String getS(String property) {
-    return properties.getProperty(property);
+  /**
+   * Load the configuration again if its file was modified since it was last
+   * loaded. The new snapshot replaces the current one at once, a search sees
+   * either the old or the new values.
+   *
+   * @return true if a new snapshot was published
+   */
+  public static synchronized boolean reload() {
+    if (path == null) {
+      return false;
+    }
+    FileTime modified;
+    try {
+      modified = Files.getLastModifiedTime(path);
+    } catch (IOException exception) {
+      log.log(Level.WARNING, "Reading the configuration failed: " +
+        exception.getMessage());
+      return false;
+    }
+    if (modified.equals(lastModified)) {
+      return false;
+    }
+    try {
+      snapshot = new Snapshot(load(path));
+    } catch (IOException exception) {
+      log.log(Level.WARNING, "Reading the configuration failed: " +
+        exception.getMessage());
+      return false;
+    } catch (IllegalArgumentException exception) {
+      log.log(Level.WARNING, "Keeping the previous configuration: " +
+        exception.getMessage());
+      // Do not report the same invalid file again
+      lastModified = modified;
+      return false;
+    }
+    lastModified = modified;
+    log.log(Level.INFO, "Reloaded the configuration from " + path + ".");
+    for (Runnable listener : listeners) {
+      try {
+        listener.run();
+      } catch (RuntimeException exception) {
+        log.log(Level.WARNING, "Applying the configuration failed: " +
+          exception.getMessage());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Register a listener that is called after a new snapshot was published
+   * by {@link #reload()}.
+   *
+   * @param listener to be called
+   */
+  public static void addReloadListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param listener to be no longer called
+   */
+  public static void removeReloadListener(Runnable listener) {
+    listeners.remove(listener);
   }
 
-  private static int getI(String property) {
-    return Integer.parseInt(properties.getProperty(property));
+  /**
+   * Check the file for modifications every few seconds and {@link #reload()}
+   * it. Does nothing if the file is already watched.
+   *
+   * @param interval seconds between two checks, 0 to not watch the file
+   */
+  public static synchronized void watch(int interval) {
+    if (watcher != null || interval <= 0) {
+      return;
+    }
+    watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "configuration-watcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    watcher.scheduleWithFixedDelay(C::reload, interval, interval,
+      TimeUnit.SECONDS);
   }
 
-  private static boolean getB(String property) {
-    return properties.getProperty(property).equals("true");
+  /**
+   * Stop watching the file.
+   */
+  public static synchronized void stopWatching() {
+    if (watcher != null) {
+      watcher.shutdownNow();
+      watcher = null;
+    }
   }
 
-  private static float getF(String property) {
-    return Float.parseFloat(properties.getProperty(property));
+  private static Properties load(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(file)) {
+      properties.load(inputStream);
+    }
+    return properties;
   }
 
-  private static String[] getStringArray(String property, String delimiter) {
-    return property.split(delimiter);
+  /**
+   * @return the current snapshot
+   */
+  private static Snapshot current() {
+    return snapshot;
   }
 
   public static class Serve {
@@ -42,7 +167,7 @@ public class C {
      * @return the page size (the number of texts served).
      */
     public static int pageSize() {
-      return C.getI(PAGE_SIZE);
+      return current().pageSize;
     }
 
     private static String NUMBER_DOCUMENTS = "serve.number.documents";
@@ -51,7 +176,7 @@ public class C {
      * @return the maximum number of documents that should be served.
      */
     public static int numberDocuments() {
-      return C.getI(NUMBER_DOCUMENTS);
+      return current().numberDocuments;
     }
 
     private static String NUMBER_EXPORT = "serve.number.export";
@@ -60,7 +185,16 @@ public class C {
      * @return the maximum number of documents that should be exported.
      */
     public static int numberExport() {
-      return C.getI(NUMBER_EXPORT);
+      return current().numberExport;
+    }
+
+    private static String EXPORT_FLUSH_RECORDS = "serve.export.flushRecords";
+
+    /**
+     * @return the number of exported records written to the client at once
+     */
+    public static int exportFlushRecords() {
+      return current().exportFlushRecords;
     }
 
     private static String MAX_EDIT_DISTANCE = "serve.maxEditDistance";
@@ -68,7 +202,243 @@ public class C {
     /**
      * @return the maximum number of character edits of a query term
      */
-    public static int maxEditDistance() { return C.getI(MAX_EDIT_DISTANCE); }
+    public static int maxEditDistance() { return current().maxEditDistance; }
+
+    private static String INDEX_DIRECTORY = "serve.index.directory";
+
+    /**
+     * @return implementation of the index directory: auto, mmap or nio
+     */
+    public static String indexDirectory() {
+      return current().indexDirectory;
+    }
+
+    private static String INDEX_PRELOAD = "serve.index.preload";
+
+    /**
+     * @return extensions of memory-mapped index files that are preloaded
+     */
+    public static String[] indexPreload() {
+      return current().indexPreload.clone();
+    }
+
+    private static String REFRESH_INTERVAL = "serve.index.refreshInterval";
+
+    /**
+     * @return seconds between two checks for a new commit of the index, 0 to
+     * not check
+     */
+    public static int refreshInterval() {
+      return current().refreshInterval;
+    }
+
+    private static String SEARCH_THREADS = "serve.search.threads";
+
+    /**
+     * @return number of threads searching segments concurrently, 0 to search
+     * all segments on the request thread
+     */
+    public static int searchThreads() {
+      return current().searchThreads;
+    }
+
+    private static String SLICE_DOCS = "serve.search.sliceDocs";
+
+    /**
+     * @return number of documents after which a slice of segments is closed
+     */
+    public static int sliceDocs() {
+      return current().sliceDocs;
+    }
+
+    private static String SLICE_SEGMENTS = "serve.search.sliceSegments";
+
+    /**
+     * @return maximum number of segments in a slice
+     */
+    public static int sliceSegments() {
+      return current().sliceSegments;
+    }
+
+    private static String WARMUP_QUERIES = "serve.warmup.queries";
+
+    /**
+     * @return URL query strings that are run on every newly opened searcher
+     */
+    public static String[] warmupQueries() {
+      return current().warmupQueries.clone();
+    }
+
+    private static String CACHE_SIZE = "serve.cache.size";
+
+    /**
+     * @return maximum number of entries of the hit cache, 0 disables both
+     * result caches
+     */
+    public static int cacheSize() {
+      return current().cacheSize;
+    }
+
+    private static String CACHE_RESPONSE_MB = "serve.cache.responseMB";
+
+    /**
+     * @return maximum memory in MB of the cached responses
+     */
+    public static int cacheResponseMB() {
+      return current().cacheResponseMB;
+    }
+
+    private static String CACHE_TIME_TO_LIVE = "serve.cache.timeToLive";
+
+    /**
+     * @return seconds after which a cached result is evicted
+     */
+    public static int cacheTimeToLive() {
+      return current().cacheTimeToLive;
+    }
+
+    private static String FUZZY_CACHE_SIZE = "serve.fuzzy.cacheSize";
+
+    /**
+     * @return maximum number of fuzzy term expansions cached per index reader
+     */
+    public static int fuzzyCacheSize() {
+      return current().fuzzyCacheSize;
+    }
+
+    private static String FILTER_CACHE_SIZE = "serve.filter.cacheSize";
+
+    /**
+     * @return maximum number of filters whose matching documents are cached
+     */
+    public static int filterCacheSize() {
+      return current().filterCacheSize;
+    }
+
+    private static String FILTER_CACHE_MB = "serve.filter.cacheMB";
+
+    /**
+     * @return maximum memory in MB of the cached filter bitsets
+     */
+    public static int filterCacheMB() {
+      return current().filterCacheMB;
+    }
+
+    private static String FILTER_MIN_SEGMENT_DOCS =
+      "serve.filter.minSegmentDocs";
+
+    /**
+     * @return minimum number of documents of a segment whose filters are
+     * cached
+     */
+    public static int filterMinSegmentDocs() {
+      return current().filterMinSegmentDocs;
+    }
+
+    private static String FACET_LENGTH_BUCKET = "serve.facet.lengthBucket";
+
+    /**
+     * @return the width of a text length bucket in words
+     */
+    public static int facetLengthBucket() {
+      return current().facetLengthBucket;
+    }
+
+    private static String FACET_GRID_SIZE = "serve.facet.gridSize";
+
+    /**
+     * @return the width and height of a map grid cell in degrees
+     */
+    public static double facetGridSize() {
+      return current().facetGridSize;
+    }
+
+    private static String INTERACTIVE_CONCURRENCY =
+      "serve.admission.interactive.concurrency";
+
+    /**
+     * @return number of document and facet searches that run at once
+     */
+    public static int interactiveConcurrency() {
+      return current().interactiveConcurrency;
+    }
+
+    private static String INTERACTIVE_QUEUE =
+      "serve.admission.interactive.queue";
+
+    /**
+     * @return number of document and facet searches that wait for their turn
+     */
+    public static int interactiveQueue() {
+      return current().interactiveQueue;
+    }
+
+    private static String FULL_TEXT_CONCURRENCY =
+      "serve.admission.fullText.concurrency";
+
+    /**
+     * @return number of full text searches that run at once
+     */
+    public static int fullTextConcurrency() {
+      return current().fullTextConcurrency;
+    }
+
+    private static String FULL_TEXT_QUEUE = "serve.admission.fullText.queue";
+
+    /**
+     * @return number of full text searches that wait for their turn
+     */
+    public static int fullTextQueue() {
+      return current().fullTextQueue;
+    }
+
+    private static String EXPORT_CONCURRENCY =
+      "serve.admission.export.concurrency";
+
+    /**
+     * @return number of exports that run at once
+     */
+    public static int exportConcurrency() {
+      return current().exportConcurrency;
+    }
+
+    private static String EXPORT_QUEUE = "serve.admission.export.queue";
+
+    /**
+     * @return number of exports that wait for their turn
+     */
+    public static int exportQueue() {
+      return current().exportQueue;
+    }
+
+    private static String ADMISSION_MAX_WAIT = "serve.admission.maxWait";
+
+    /**
+     * @return milliseconds a queued request waits before it is rejected
+     */
+    public static int admissionMaxWait() {
+      return current().admissionMaxWait;
+    }
+
+    private static String ADMISSION_RETRY_AFTER =
+      "serve.admission.retryAfter";
+
+    /**
+     * @return seconds after which a rejected client should retry
+     */
+    public static int admissionRetryAfter() {
+      return current().admissionRetryAfter;
+    }
+
+    private static String CONFIG_RELOAD_INTERVAL =
+      "serve.config.reloadInterval";
+
+    /**
+     * @return seconds between two checks for a modified configuration file
+     */
+    public static int configReloadInterval() {
+      return current().configReloadInterval;
+    }
   }
 
   public static class FilePath {
@@ -79,7 +449,7 @@ public class C {
      * @return path to the project files
      */
     public static String project() {
-      return C.getS(PROJECT);
+      return current().project;
     }
 
     private static final String INDEX = "file.path.index";
@@ -88,7 +458,7 @@ public class C {
      * @return path to the index
      */
     public static String index() {
-      return C.getS(PROJECT) + C.getS(INDEX);
+      return current().index;
     }
 
     private static final String DOCUMENT = "file.path.document";
@@ -97,7 +467,7 @@ public class C {
      * @return path to the documents
      */
     public static String document() {
-      return C.getS(PROJECT) + C.getS(DOCUMENT);
+      return current().document;
     }
 
     private static final String LOCATIONS = "file.locations";
@@ -106,7 +476,7 @@ public class C {
      * @return path to locations file
      */
     public static String locationsFile() {
-      return C.getS(PROJECT) + C.getS(LOCATIONS);
+      return current().locationsFile;
     }
 
     private static final String DICTIONARY = "file.path.dictionary";
@@ -116,7 +486,8 @@ public class C {
      * @return path to dictionary for a given language
      */
     public static String dictionary(String language) {
-      return C.getS(PROJECT) + C.getS(DICTIONARY) + "/" + language + ".txt";
+      Snapshot snapshot = current();
+      return snapshot.project + snapshot.dictionary + "/" + language + ".txt";
     }
 
     private static final String STOPWORDS = "file.path.stopwords";
@@ -125,7 +496,7 @@ public class C {
      * @return path to file containing stopwords
      */
     public static String stopwords() {
-      return C.getS(PROJECT) + C.getS(STOPWORDS);
+      return current().stopwords;
     }
   }
 
@@ -136,7 +507,7 @@ public class C {
      * @return true if non-open articles should be included
      */
     public static boolean includeNonOpen() {
-      return C.getB(INCLUDE_NON_OPEN);
+      return current().includeNonOpen;
     }
 
     private static final String TYPE = "process.type";
@@ -145,7 +516,182 @@ public class C {
      * @return type of files to be processed
      */
     public static String type() {
-      return C.getS(TYPE);
+      return current().type;
+    }
+
+    private static final String INCREMENTAL = "process.incremental";
+
+    /**
+     * @return true if only new, changed and removed files are reindexed
+     */
+    public static boolean incremental() {
+      return current().incremental;
+    }
+
+    private static final String CHECKPOINT_INTERVAL =
+      "process.checkpointInterval";
+
+    /**
+     * @return seconds between two commits of an incremental run, 0 to commit
+     * only at the end
+     */
+    public static int checkpointInterval() {
+      return current().checkpointInterval;
+    }
+
+    private static final String PIPELINE_READERS = "process.pipeline.readers";
+
+    /**
+     * @return number of threads decompressing and parsing files, 0 for one
+     * per core
+     */
+    public static int pipelineReaders() {
+      return current().pipelineReaders;
+    }
+
+    private static final String PIPELINE_BUILDERS =
+      "process.pipeline.builders";
+
+    /**
+     * @return number of threads building documents, 0 for one per core
+     */
+    public static int pipelineBuilders() {
+      return current().pipelineBuilders;
+    }
+
+    private static final String PIPELINE_WRITERS = "process.pipeline.writers";
+
+    /**
+     * @return number of threads adding documents to the index, 0 for one per
+     * core
+     */
+    public static int pipelineWriters() {
+      return current().pipelineWriters;
+    }
+
+    private static final String PIPELINE_BATCH_SIZE =
+      "process.pipeline.batchSize";
+
+    /**
+     * @return number of records passed between the stages at once
+     */
+    public static int pipelineBatchSize() {
+      return current().pipelineBatchSize;
+    }
+
+    private static final String PIPELINE_QUEUE_SIZE =
+      "process.pipeline.queueSize";
+
+    /**
+     * @return number of batches queued between two stages
+     */
+    public static int pipelineQueueSize() {
+      return current().pipelineQueueSize;
+    }
+
+    private static final String PIPELINE_REPORT_INTERVAL =
+      "process.pipeline.reportInterval";
+
+    /**
+     * @return seconds between two reports of the stage statistics, 0 to
+     * report only at the end
+     */
+    public static int pipelineReportInterval() {
+      return current().pipelineReportInterval;
+    }
+
+    private static final String WRITER_RAM_BUFFER =
+      "process.writer.ramBufferMB";
+
+    /**
+     * @return megabytes of documents buffered before a segment is flushed
+     */
+    public static double writerRamBufferMB() {
+      return current().writerRamBufferMB;
+    }
+
+    private static final String WRITER_RAM_PER_THREAD_LIMIT =
+      "process.writer.ramPerThreadLimitMB";
+
+    /**
+     * @return megabytes a single indexing thread may buffer before its
+     * segment is flushed
+     */
+    public static int writerRamPerThreadLimitMB() {
+      return current().writerRamPerThreadLimitMB;
+    }
+
+    private static final String WRITER_MERGE_THREADS =
+      "process.writer.mergeThreads";
+
+    /**
+     * @return number of concurrent merges, 0 to detect it from the hardware
+     */
+    public static int writerMergeThreads() {
+      return current().writerMergeThreads;
+    }
+
+    private static final String WRITER_THROTTLE_MERGES =
+      "process.writer.throttleMerges";
+
+    /**
+     * @return true if the I/O rate of merges is limited
+     */
+    public static boolean writerThrottleMerges() {
+      return current().writerThrottleMerges;
+    }
+
+    private static final String WRITER_SEGMENTS_PER_TIER =
+      "process.writer.segmentsPerTier";
+
+    /**
+     * @return number of similarly sized segments allowed before they are
+     * merged
+     */
+    public static double writerSegmentsPerTier() {
+      return current().writerSegmentsPerTier;
+    }
+
+    private static final String WRITER_MAX_MERGED_SEGMENT =
+      "process.writer.maxMergedSegmentMB";
+
+    /**
+     * @return maximum size of a merged segment in megabytes
+     */
+    public static double writerMaxMergedSegmentMB() {
+      return current().writerMaxMergedSegmentMB;
+    }
+
+    private static final String WRITER_FLOOR_SEGMENT =
+      "process.writer.floorSegmentMB";
+
+    /**
+     * @return size in megabytes below which segments are treated as equal
+     * when choosing merges
+     */
+    public static double writerFloorSegmentMB() {
+      return current().writerFloorSegmentMB;
+    }
+
+    private static final String WRITER_COMPOUND_FILE =
+      "process.writer.compoundFile";
+
+    /**
+     * @return true if segments are written as compound files
+     */
+    public static boolean writerCompoundFile() {
+      return current().writerCompoundFile;
+    }
+
+    private static final String WRITER_FORCE_MERGE =
+      "process.writer.forceMerge";
+
+    /**
+     * @return number of segments the index is merged down to at the end, 0
+     * to skip the final merge
+     */
+    public static int writerForceMerge() {
+      return current().writerForceMerge;
     }
 
     private static final String LANGUAGES = "process.languages";
@@ -154,7 +700,7 @@ public class C {
      * @return array of iso codes of languages to be detected
      */
     public static String[] languages() {
-      return C.getStringArray(LANGUAGES, ",");
+      return current().languages.clone();
     }
   }
 
@@ -179,6 +725,13 @@ public class C {
     public static final String TEXT = "text";
     public static final String LINK = "page_access";
     public static final String PUBLISHER = "title";
+    public static final String TITLE = "headline";
+    public static final String CLUSTER = "cluster";
+    public static final String OPEN_DOCUMENT = "open";
+    public static final String LANGUAGE = "language";
+    public static final String PLACE_OF_PUBLICATION = "place_of_publication";
+    public static final String SOURCE = "source";
+    public static final String CORPUS = "corpus";
   }
 
   public static class ContentTypes {
@@ -203,18 +756,26 @@ public class C {
     // Fields of computed information
     public static final String LENGTH = "length";
     public static final String ID = "id";
+    // Date as days since 1970-01-01, see EpochDays
+    public static final String DAY = "day";
 
     public static final String VISUALIZATION = "visualization";
     public static final String TEXT_DATA = "textData";
     public static final String LONGITUDE = "longitude";
     public static final String LATITUDE = "latitude";
+    // Latitude and longitude as one point, for map queries and the grid
+    public static final String LOCATION = "location";
     public static final String CLUSTER = "cluster";
+    public static final String CORPUS = "corpus";
+    // Name of the file a document was read from
+    public static final String FILE = "file";
   }
 
   public static class JSONFieldNames {
     public static final String PARSE_ERROR = "parseError";
     public static final String QUERY = "query";
     public static final String DOCUMENTS = "documents";
+    public static final String CURSOR = "cursor";
     public static final String ID = "id";
     public static final String DATE = "date";
     public static final String TEXT = "text";
@@ -233,6 +794,248 @@ public class C {
     public static final String PLACE_OF_PUBLICATION = "placeOfPublication";
     public static final String CORPUS = "corpus";
     public static final String TITLE = "title";
+    public static final String YEAR = "year";
+    public static final String GRID = "grid";
+    public static final String GRID_SIZE = "gridSize";
+    public static final String KEY = "key";
+    public static final String VALUE = "value";
+    public static final String RESULT_CACHE = "resultCache";
+    public static final String HITS = "hits";
+    public static final String RESPONSES = "responses";
+    public static final String HIT_COUNT = "hitCount";
+    public static final String MISS_COUNT = "missCount";
+    public static final String HIT_RATE = "hitRate";
+    public static final String EVICTION_COUNT = "evictionCount";
+    public static final String SIZE = "size";
+    public static final String SEARCH = "search";
+    public static final String FUZZY_EXPANSIONS = "fuzzyExpansions";
+    public static final String FILTER_CACHE = "filterCache";
+    public static final String CACHED_FILTERS = "cachedFilters";
+    public static final String RAM_BYTES = "ramBytes";
+    public static final String QUERIES = "queries";
+    public static final String AVERAGE_PARALLELISM = "averageParallelism";
+    public static final String ADMISSION = "admission";
+    public static final String INTERACTIVE = "interactive";
+    public static final String FULL_TEXT = "fullText";
+    public static final String EXPORT = "export";
+    public static final String ACTIVE = "active";
+    public static final String QUEUED = "queued";
+    public static final String ADMITTED = "admitted";
+    public static final String REJECTED = "rejected";
+    public static final String TIMED_OUT = "timedOut";
+    public static final String AVERAGE_WAIT = "averageWait";
+    public static final String MAX_WAIT = "maxWait";
   }
-}
 
+  /**
+   * Immutable, typed values of all properties. Integer, decimal and boolean
+   * properties are required, a missing or malformed value rejects the whole
+   * file. So does a size, concurrency or grid size that is not positive and
+   * an interval or timeout that is negative.
+   */
+  private static final class Snapshot {
+    private final int pageSize;
+    private final int numberDocuments;
+    private final int numberExport;
+    private final int exportFlushRecords;
+    private final int maxEditDistance;
+    private final String indexDirectory;
+    private final String[] indexPreload;
+    private final int refreshInterval;
+    private final int searchThreads;
+    private final int sliceDocs;
+    private final int sliceSegments;
+    private final String[] warmupQueries;
+    private final int cacheSize;
+    private final int cacheResponseMB;
+    private final int cacheTimeToLive;
+    private final int fuzzyCacheSize;
+    private final int filterCacheSize;
+    private final int filterCacheMB;
+    private final int filterMinSegmentDocs;
+    private final int facetLengthBucket;
+    private final double facetGridSize;
+    private final int interactiveConcurrency;
+    private final int interactiveQueue;
+    private final int fullTextConcurrency;
+    private final int fullTextQueue;
+    private final int exportConcurrency;
+    private final int exportQueue;
+    private final int admissionMaxWait;
+    private final int admissionRetryAfter;
+    private final int configReloadInterval;
+    private final String project;
+    private final boolean includeNonOpen;
+    private final String type;
+    private final boolean incremental;
+    private final int checkpointInterval;
+    private final int pipelineReaders;
+    private final int pipelineBuilders;
+    private final int pipelineWriters;
+    private final int pipelineBatchSize;
+    private final int pipelineQueueSize;
+    private final int pipelineReportInterval;
+    private final double writerRamBufferMB;
+    private final int writerRamPerThreadLimitMB;
+    private final int writerMergeThreads;
+    private final boolean writerThrottleMerges;
+    private final double writerSegmentsPerTier;
+    private final double writerMaxMergedSegmentMB;
+    private final double writerFloorSegmentMB;
+    private final boolean writerCompoundFile;
+    private final int writerForceMerge;
+    private final String[] languages;
+    private final String index;
+    private final String document;
+    private final String locationsFile;
+    private final String stopwords;
+    private final String dictionary;
+
+    /**
+     * @param properties of the configuration file
+     * @throws IllegalArgumentException in case a property is missing or
+     *                                  malformed
+     */
+    private Snapshot(Properties properties) {
+      pageSize = positive(properties, Serve.PAGE_SIZE);
+      numberDocuments = positive(properties, Serve.NUMBER_DOCUMENTS);
+      numberExport = positive(properties, Serve.NUMBER_EXPORT);
+      exportFlushRecords = positive(properties, Serve.EXPORT_FLUSH_RECORDS);
+      maxEditDistance = nonNegative(properties, Serve.MAX_EDIT_DISTANCE);
+      indexDirectory = properties.getProperty(Serve.INDEX_DIRECTORY);
+      indexPreload = array(properties, Serve.INDEX_PRELOAD, ",");
+      refreshInterval = nonNegative(properties, Serve.REFRESH_INTERVAL);
+      searchThreads = nonNegative(properties, Serve.SEARCH_THREADS);
+      sliceDocs = positive(properties, Serve.SLICE_DOCS);
+      sliceSegments = positive(properties, Serve.SLICE_SEGMENTS);
+      warmupQueries = array(properties, Serve.WARMUP_QUERIES, ";");
+      cacheSize = nonNegative(properties, Serve.CACHE_SIZE);
+      cacheResponseMB = positive(properties, Serve.CACHE_RESPONSE_MB);
+      cacheTimeToLive = nonNegative(properties, Serve.CACHE_TIME_TO_LIVE);
+      fuzzyCacheSize = nonNegative(properties, Serve.FUZZY_CACHE_SIZE);
+      filterCacheSize = nonNegative(properties, Serve.FILTER_CACHE_SIZE);
+      filterCacheMB = positive(properties, Serve.FILTER_CACHE_MB);
+      filterMinSegmentDocs =
+        nonNegative(properties, Serve.FILTER_MIN_SEGMENT_DOCS);
+      facetLengthBucket = positive(properties, Serve.FACET_LENGTH_BUCKET);
+      facetGridSize = positiveFloating(properties, Serve.FACET_GRID_SIZE);
+      interactiveConcurrency =
+        positive(properties, Serve.INTERACTIVE_CONCURRENCY);
+      interactiveQueue = nonNegative(properties, Serve.INTERACTIVE_QUEUE);
+      fullTextConcurrency = positive(properties, Serve.FULL_TEXT_CONCURRENCY);
+      fullTextQueue = nonNegative(properties, Serve.FULL_TEXT_QUEUE);
+      exportConcurrency = positive(properties, Serve.EXPORT_CONCURRENCY);
+      exportQueue = nonNegative(properties, Serve.EXPORT_QUEUE);
+      admissionMaxWait = nonNegative(properties, Serve.ADMISSION_MAX_WAIT);
+      admissionRetryAfter =
+        nonNegative(properties, Serve.ADMISSION_RETRY_AFTER);
+      configReloadInterval =
+        nonNegative(properties, Serve.CONFIG_RELOAD_INTERVAL);
+      project = properties.getProperty(FilePath.PROJECT);
+      includeNonOpen = bool(properties, Process.INCLUDE_NON_OPEN);
+      type = properties.getProperty(Process.TYPE);
+      incremental = bool(properties, Process.INCREMENTAL);
+      checkpointInterval = nonNegative(properties, Process.CHECKPOINT_INTERVAL);
+      pipelineReaders = nonNegative(properties, Process.PIPELINE_READERS);
+      pipelineBuilders = nonNegative(properties, Process.PIPELINE_BUILDERS);
+      pipelineWriters = nonNegative(properties, Process.PIPELINE_WRITERS);
+      pipelineBatchSize = positive(properties, Process.PIPELINE_BATCH_SIZE);
+      pipelineQueueSize = positive(properties, Process.PIPELINE_QUEUE_SIZE);
+      pipelineReportInterval =
+        nonNegative(properties, Process.PIPELINE_REPORT_INTERVAL);
+      writerRamBufferMB =
+        positiveFloating(properties, Process.WRITER_RAM_BUFFER);
+      writerRamPerThreadLimitMB =
+        positive(properties, Process.WRITER_RAM_PER_THREAD_LIMIT);
+      writerMergeThreads =
+        nonNegative(properties, Process.WRITER_MERGE_THREADS);
+      writerThrottleMerges = bool(properties, Process.WRITER_THROTTLE_MERGES);
+      writerSegmentsPerTier =
+        positiveFloating(properties, Process.WRITER_SEGMENTS_PER_TIER);
+      writerMaxMergedSegmentMB =
+        positiveFloating(properties, Process.WRITER_MAX_MERGED_SEGMENT);
+      writerFloorSegmentMB =
+        positiveFloating(properties, Process.WRITER_FLOOR_SEGMENT);
+      writerCompoundFile = bool(properties, Process.WRITER_COMPOUND_FILE);
+      writerForceMerge = nonNegative(properties, Process.WRITER_FORCE_MERGE);
+      languages = array(properties, Process.LANGUAGES, ",");
+      index = project + properties.getProperty(FilePath.INDEX);
+      document = project + properties.getProperty(FilePath.DOCUMENT);
+      locationsFile = project + properties.getProperty(FilePath.LOCATIONS);
+      stopwords = project + properties.getProperty(FilePath.STOPWORDS);
+      dictionary = properties.getProperty(FilePath.DICTIONARY);
+    }
+
+    private static String required(Properties properties, String key) {
+      String value = properties.getProperty(key);
+      if (value == null) {
+        throw new IllegalArgumentException("Missing property " + key + ".");
+      }
+      return value.trim();
+    }
+
+    private static int integer(Properties properties, String key) {
+      String value = required(properties, key);
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException exception) {
+        throw new IllegalArgumentException("Property " + key +
+          " is not an integer: " + value);
+      }
+    }
+
+    private static int positive(Properties properties, String key) {
+      int value = integer(properties, key);
+      if (value <= 0) {
+        throw new IllegalArgumentException("Property " + key +
+          " is not positive: " + value);
+      }
+      return value;
+    }
+
+    private static int nonNegative(Properties properties, String key) {
+      int value = integer(properties, key);
+      if (value < 0) {
+        throw new IllegalArgumentException("Property " + key +
+          " is negative: " + value);
+      }
+      return value;
+    }
+
+    private static float floating(Properties properties, String key) {
+      String value = required(properties, key);
+      try {
+        return Float.parseFloat(value);
+      } catch (NumberFormatException exception) {
+        throw new IllegalArgumentException("Property " + key +
+          " is not a number: " + value);
+      }
+    }
+
+    private static float positiveFloating(Properties properties,
+                                          String key) {
+      float value = floating(properties, key);
+      if (!(value > 0)) {
+        throw new IllegalArgumentException("Property " + key +
+          " is not positive: " + value);
+      }
+      return value;
+    }
+
+    private static boolean bool(Properties properties, String key) {
+      String value = required(properties, key);
+      if (!value.equals("true") && !value.equals("false")) {
+        throw new IllegalArgumentException("Property " + key +
+          " is neither true nor false: " + value);
+      }
+      return value.equals("true");
+    }
+
+    private static String[] array(Properties properties, String key,
+                                  String delimiter) {
+      String value = properties.getProperty(key);
+      value = value != null ? value.trim() : "";
+      return value.isEmpty() ? new String[0] : value.split(delimiter);
+    }
+  }
+}
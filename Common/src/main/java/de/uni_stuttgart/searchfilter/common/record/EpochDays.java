@@ -0,0 +1,77 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Convert ISO 8601 dates like <i>1854-03-01</i> to days since 1970-01-01
+ * and back. Dates are indexed as these numbers, such that a time range is a
+ * single numeric range. Partial dates (<i>1854</i> or <i>1854-03</i>) stand
+ * for the whole year or month.
+ */
+public final class EpochDays {
+
+  private EpochDays() {}
+
+  /**
+   * @param date ISO 8601 date, possibly partial
+   * @return first day of the date or null if it is malformed
+   */
+  public static Integer first(String date) {
+    return parse(date, false);
+  }
+
+  /**
+   * @param date ISO 8601 date, possibly partial
+   * @return last day of the date or null if it is malformed
+   */
+  public static Integer last(String date) {
+    return parse(date, true);
+  }
+
+  /**
+   * @param day days since 1970-01-01
+   * @return ISO 8601 representation of the day
+   */
+  public static String format(int day) {
+    return LocalDate.ofEpochDay(day).toString();
+  }
+
+  /**
+   * @param day days since 1970-01-01
+   * @return year of the day
+   */
+  public static int year(int day) {
+    return LocalDate.ofEpochDay(day).getYear();
+  }
+
+  /**
+   * @param year year of the day
+   * @return days since 1970-01-01 of the first of January of the year
+   */
+  public static int firstDayOfYear(int year) {
+    return (int) LocalDate.of(year, 1, 1).toEpochDay();
+  }
+
+  private static Integer parse(String date, boolean last) {
+    String[] parts = date.trim().split("-", 3);
+    try {
+      int year = Integer.parseInt(parts[0]);
+      if (parts.length == 1) {
+        return (int) (last ? LocalDate.of(year, 12, 31) :
+          LocalDate.of(year, 1, 1)).toEpochDay();
+      }
+      int month = Integer.parseInt(parts[1]);
+      if (parts.length == 2) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return (int) (last ? yearMonth.atEndOfMonth() :
+          yearMonth.atDay(1)).toEpochDay();
+      }
+      int day = Integer.parseInt(parts[2]);
+      return (int) LocalDate.of(year, month, day).toEpochDay();
+    } catch (NumberFormatException | DateTimeException exception) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Write a flat JSON object into a reused buffer, e.g. a decoded {@link
+ * RecordDecoder record}, instead of building a {@link org.json.JSONObject}
+ * map and serializing it. Strings are escaped and numbers are formatted like
+ * {@link org.json.JSONObject} does. An instance is not thread-safe.
+ */
+public final class JSONRecordWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final StringBuilder builder = new StringBuilder(1 << 12);
+  private char[] chars = new char[0];
+
+  /**
+   * Start a new object, discarding the previous one.
+   */
+  public void begin() {
+    builder.setLength(0);
+    builder.append('{');
+  }
+
+  /**
+   * @param name  of the field
+   * @param value of the field
+   */
+  public void put(String name, String value) {
+    name(name);
+    quote(value);
+  }
+
+  /**
+   * @param name  of the field
+   * @param value of the field
+   */
+  public void put(String name, long value) {
+    name(name);
+    builder.append(value);
+  }
+
+  /**
+   * @param name  of the field
+   * @param value of the field, null if it is not finite
+   */
+  public void put(String name, double value) {
+    name(name);
+    if (Double.isFinite(value)) {
+      // Without trailing zeros, like JSONObject writes numbers
+      int start = builder.length();
+      builder.append(value);
+      if (builder.indexOf("E", start) < 0) {
+        int end = builder.length();
+        while (builder.charAt(end - 1) == '0') {
+          --end;
+        }
+        if (builder.charAt(end - 1) == '.') {
+          --end;
+        }
+        builder.setLength(end);
+      }
+    } else {
+      builder.append("null");
+    }
+  }
+
+  /**
+   * Close the object.
+   *
+   * @return the object
+   */
+  public String end() {
+    builder.append('}');
+    return builder.toString();
+  }
+
+  /**
+   * Close the object and write it without creating a string.
+   *
+   * @param writer to write the object to
+   * @throws IOException in case writing failed
+   */
+  public void end(Writer writer) throws IOException {
+    builder.append('}');
+    int length = builder.length();
+    if (chars.length < length) {
+      chars = new char[Math.max(length, 2 * chars.length)];
+    }
+    builder.getChars(0, length, chars, 0);
+    writer.write(chars, 0, length);
+  }
+
+  private void name(String name) {
+    if (builder.length() > 1) {
+      builder.append(',');
+    }
+    quote(name);
+    builder.append(':');
+  }
+
+  /**
+   * Append a quoted string. Runs of characters that need no escaping are
+   * copied at once.
+   *
+   * @param value to be quoted
+   */
+  private void quote(String value) {
+    builder.append('"');
+    int length = value.length();
+    int start = 0;
+    char previous = 0;
+    for (int i = 0; i < length; ++i) {
+      char c = value.charAt(i);
+      if (!escaped(c, previous)) {
+        previous = c;
+        continue;
+      }
+      builder.append(value, start, i);
+      start = i + 1;
+      previous = c;
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          builder.append('\\').append(c);
+          break;
+        case '\b':
+          builder.append("\\b");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\f':
+          builder.append("\\f");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        default:
+          builder.append("\\u").append(HEX[(c >> 12) & 0xf])
+            .append(HEX[(c >> 8) & 0xf]).append(HEX[(c >> 4) & 0xf])
+            .append(HEX[c & 0xf]);
+          break;
+      }
+    }
+    builder.append(value, start, length);
+    builder.append('"');
+  }
+
+  /**
+   * @param c        character of a string
+   * @param previous character before it
+   * @return true if the character is escaped
+   */
+  private static boolean escaped(char c, char previous) {
+    return c < ' ' || c == '"' || c == '\\' || (c == '/' && previous == '<') ||
+      (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100');
+  }
+}
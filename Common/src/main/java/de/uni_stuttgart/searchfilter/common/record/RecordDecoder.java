@@ -0,0 +1,224 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decode stored records lazily. Resetting the decoder to a record only reads
+ * its header, a value is located and decoded when it is requested and
+ * strings are only converted from UTF-8 then. A decoder is reused for all
+ * records of a request, it is not thread-safe.
+ */
+public class RecordDecoder {
+
+  private final RecordDictionary dictionary;
+  private final int[] offsets = new int[RecordField.VALUES.length];
+  private byte[] bytes;
+  private int end;
+  private long present;
+  private int position;
+  // Offsets of the fields before this one are known
+  private int located;
+  // Offset behind the value of the last located field
+  private int scanned;
+
+  /**
+   * @param dictionary to decode the dictionary fields with
+   */
+  public RecordDecoder(RecordDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Start decoding a record.
+   *
+   * @param bytes  containing the record
+   * @param offset of the record
+   * @param length of the record
+   * @throws IllegalArgumentException in case the record has an unknown
+   *                                  version
+   */
+  public void reset(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.end = offset + length;
+    if (length == 0 || bytes[offset] != RecordEncoder.VERSION) {
+      throw new IllegalArgumentException("Unknown record version: " +
+        (length == 0 ? "empty" : Byte.toString(bytes[offset])));
+    }
+    position = offset + 1;
+    present = readVLong();
+    located = 0;
+    scanned = position;
+  }
+
+  /**
+   * @param field of the record
+   * @return true if the record contains the field
+   */
+  public boolean has(RecordField field) {
+    return (present & (1L << field.ordinal())) != 0;
+  }
+
+  /**
+   * @param field {@link RecordField.Type#LONG} field
+   * @return value of the field
+   */
+  public long getLong(RecordField field) {
+    position = locate(field);
+    long value = readVLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * @param field {@link RecordField.Type#FLOAT} field
+   * @return value of the field
+   */
+  public double getDouble(RecordField field) {
+    int offset = locate(field);
+    int bits = ((bytes[offset] & 0xFF) << 24) |
+      ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) |
+      (bytes[offset + 3] & 0xFF);
+    return Float.intBitsToFloat(bits);
+  }
+
+  /**
+   * @param field {@link RecordField.Type#STRING} or {@link
+   *              RecordField.Type#DICTIONARY} field
+   * @return value of the field
+   */
+  public String getString(RecordField field) {
+    position = locate(field);
+    int value = (int) readVLong();
+    if (field.type == RecordField.Type.DICTIONARY) {
+      return dictionary.value(field, value);
+    }
+    return new String(bytes, position, value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param field of any type
+   * @return value of the field as a string, null if the record does not
+   * contain it
+   */
+  public String format(RecordField field) {
+    if (!has(field)) {
+      return null;
+    }
+    switch (field.type) {
+      case LONG:
+        return Long.toString(getLong(field));
+      case FLOAT:
+        return Double.toString(getDouble(field));
+      default:
+        return getString(field);
+    }
+  }
+
+  /**
+   * Write all fields of the record as a JSON object.
+   *
+   * @param json to write the object to
+   * @return the JSON object
+   */
+  public String toJSON(JSONRecordWriter json) {
+    put(json);
+    return json.end();
+  }
+
+  /**
+   * Write the record as JSON object.
+   *
+   * @param json   writer that is reused for every record
+   * @param writer to write the object to
+   * @throws IOException in case writing failed
+   */
+  public void writeJSON(JSONRecordWriter json, Writer writer)
+    throws IOException {
+    put(json);
+    json.end(writer);
+  }
+
+  private void put(JSONRecordWriter json) {
+    json.begin();
+    for (RecordField field : RecordField.VALUES) {
+      if (!has(field)) {
+        continue;
+      }
+      switch (field.type) {
+        case LONG:
+          json.put(field.jsonName, getLong(field));
+          break;
+        case FLOAT:
+          json.put(field.jsonName, getDouble(field));
+          break;
+        default:
+          json.put(field.jsonName, getString(field));
+          break;
+      }
+    }
+  }
+
+  /**
+   * Return the offset of the value of a field. The offsets of the fields
+   * before it are remembered, such that every value is skipped at most once.
+   *
+   * @param field contained in the record
+   * @return offset of its value
+   */
+  private int locate(RecordField field) {
+    int index = field.ordinal();
+    if (!has(field)) {
+      throw new IllegalArgumentException("Record has no " + field);
+    }
+    if (index < located) {
+      return offsets[index];
+    }
+    position = scanned;
+    for (int i = located; i <= index; ++i) {
+      offsets[i] = position;
+      if ((present & (1L << i)) != 0) {
+        skip(RecordField.VALUES[i]);
+      }
+    }
+    located = index + 1;
+    scanned = position;
+    return offsets[index];
+  }
+
+  /**
+   * Move the position behind the value of a field.
+   */
+  private void skip(RecordField field) {
+    switch (field.type) {
+      case FLOAT:
+        position += 4;
+        break;
+      case STRING:
+        int length = (int) readVLong();
+        position += length;
+        break;
+      default:
+        readVLong();
+        break;
+    }
+    if (position > end) {
+      throw new IllegalArgumentException("Truncated record");
+    }
+  }
+
+  private long readVLong() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (position >= end) {
+        throw new IllegalArgumentException("Truncated record");
+      }
+      b = bytes[position++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+}
@@ -0,0 +1,116 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codes of the values of the {@link RecordField.Type#DICTIONARY} fields.
+ * Codes are assigned in the order the values are first seen and never
+ * change, so the dictionary only grows while documents are added. It is
+ * stored in the user data of the index commits and read by every reader of
+ * a commit. Assigning codes is thread-safe.
+ */
+public class RecordDictionary {
+
+  private static final String PREFIX = "dictionary:";
+
+  private final Map<RecordField, Map<String, Integer>> codes =
+    new EnumMap<>(RecordField.class);
+  private final Map<RecordField, List<String>> values =
+    new EnumMap<>(RecordField.class);
+
+  /**
+   * Create an empty dictionary.
+   */
+  public RecordDictionary() {
+    for (RecordField field : RecordField.VALUES) {
+      if (field.type == RecordField.Type.DICTIONARY) {
+        codes.put(field, new ConcurrentHashMap<>());
+        values.put(field, new ArrayList<>());
+      }
+    }
+  }
+
+  /**
+   * Read a dictionary from the user data of a commit.
+   *
+   * @param userData of the commit, may be null
+   * @return the dictionary, empty if the commit contains none
+   */
+  public static RecordDictionary read(
+    Iterable<Map.Entry<String, String>> userData) {
+    RecordDictionary dictionary = new RecordDictionary();
+    if (userData == null) {
+      return dictionary;
+    }
+    for (Map.Entry<String, String> entry : userData) {
+      if (!entry.getKey().startsWith(PREFIX)) {
+        continue;
+      }
+      RecordField field;
+      try {
+        field = RecordField.valueOf(entry.getKey().substring(PREFIX.length()));
+      } catch (IllegalArgumentException exception) {
+        continue;
+      }
+      JSONArray array = new JSONArray(entry.getValue());
+      for (int code = 0; code < array.length(); ++code) {
+        dictionary.code(field, array.getString(code));
+      }
+    }
+    return dictionary;
+  }
+
+  /**
+   * Return the code of a value, assign the next code if it is new.
+   *
+   * @param field dictionary field
+   * @param value to be encoded
+   * @return code of the value
+   */
+  public int code(RecordField field, String value) {
+    Integer code = codes.get(field).get(value);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = codes.get(field).get(value);
+      if (code == null) {
+        List<String> fieldValues = values.get(field);
+        code = fieldValues.size();
+        fieldValues.add(value);
+        codes.get(field).put(value, code);
+      }
+      return code;
+    }
+  }
+
+  /**
+   * Look up the value of a code. Not synchronized with {@link #code}, as
+   * values are only looked up in dictionaries read from a commit.
+   *
+   * @param field dictionary field
+   * @param code  of a value
+   * @return the value
+   * @throws IndexOutOfBoundsException in case the code is unknown
+   */
+  public String value(RecordField field, int code) {
+    return values.get(field).get(code);
+  }
+
+  /**
+   * @return the dictionary as entries of commit user data
+   */
+  public synchronized Map<String, String> userData() {
+    Map<String, String> userData = new HashMap<>();
+    values.forEach((field, fieldValues) -> userData.put(PREFIX + field.name(),
+      new JSONArray(fieldValues).toString()));
+    return userData;
+  }
+}
@@ -0,0 +1,188 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import java.util.Arrays;
+
+/**
+ * Encode the stored record of a document. The values can be set in any
+ * order, {@link #encode()} writes them in the order of the {@link
+ * RecordField}s:
+ * <pre>
+ * version    byte
+ * fields     variable length bit set of the fields that follow
+ * values     of the fields, see {@link RecordField.Type}
+ * </pre>
+ * An encoder is reused for all documents of a thread, it is not
+ * thread-safe.
+ */
+public class RecordEncoder {
+
+  /**
+   * Version of the encoding, increased with every incompatible change
+   */
+  public static final byte VERSION = 1;
+
+  private final RecordDictionary dictionary;
+  private final long[] numbers = new long[RecordField.VALUES.length];
+  private final String[] strings = new String[RecordField.VALUES.length];
+  private long present;
+  private byte[] buffer = new byte[1 << 12];
+  private int length;
+
+  /**
+   * @param dictionary to encode the dictionary fields with
+   */
+  public RecordEncoder(RecordDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Start a new record, discarding the values of the previous one.
+   */
+  public void begin() {
+    present = 0;
+    Arrays.fill(strings, null);
+  }
+
+  /**
+   * @param field {@link RecordField.Type#LONG} field
+   * @param value of the field
+   */
+  public void put(RecordField field, long value) {
+    check(field, RecordField.Type.LONG);
+    numbers[field.ordinal()] = value;
+    present |= 1L << field.ordinal();
+  }
+
+  /**
+   * @param field {@link RecordField.Type#FLOAT} field
+   * @param value of the field, stored with float precision
+   */
+  public void put(RecordField field, double value) {
+    check(field, RecordField.Type.FLOAT);
+    numbers[field.ordinal()] = Float.floatToIntBits((float) value);
+    present |= 1L << field.ordinal();
+  }
+
+  /**
+   * @param field {@link RecordField.Type#STRING} or {@link
+   *              RecordField.Type#DICTIONARY} field
+   * @param value of the field
+   */
+  public void put(RecordField field, String value) {
+    if (field.type == RecordField.Type.DICTIONARY) {
+      numbers[field.ordinal()] = dictionary.code(field, value);
+    } else {
+      check(field, RecordField.Type.STRING);
+      strings[field.ordinal()] = value;
+    }
+    present |= 1L << field.ordinal();
+  }
+
+  /**
+   * @return the encoded record, a new array
+   */
+  public byte[] encode() {
+    length = 0;
+    writeByte(VERSION);
+    writeVLong(present);
+    for (RecordField field : RecordField.VALUES) {
+      int index = field.ordinal();
+      if ((present & (1L << index)) == 0) {
+        continue;
+      }
+      switch (field.type) {
+        case LONG:
+          writeVLong((numbers[index] << 1) ^ (numbers[index] >> 63));
+          break;
+        case FLOAT:
+          int bits = (int) numbers[index];
+          writeByte((byte) (bits >>> 24));
+          writeByte((byte) (bits >>> 16));
+          writeByte((byte) (bits >>> 8));
+          writeByte((byte) bits);
+          break;
+        case DICTIONARY:
+          writeVLong(numbers[index]);
+          break;
+        default:
+          writeString(strings[index]);
+          break;
+      }
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private static void check(RecordField field, RecordField.Type type) {
+    if (field.type != type) {
+      throw new IllegalArgumentException(field + " is no " + type + " field");
+    }
+  }
+
+  private void writeByte(byte value) {
+    if (length == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    buffer[length++] = value;
+  }
+
+  private void writeVLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      writeByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    writeByte((byte) value);
+  }
+
+  /**
+   * Write the UTF-8 length and bytes of a string without encoding it into a
+   * temporary array.
+   */
+  private void writeString(String value) {
+    int bytes = 0;
+    int chars = value.length();
+    for (int i = 0; i < chars; ++i) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        bytes += 1;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < chars &&
+        Character.isLowSurrogate(value.charAt(i + 1))) {
+        bytes += 4;
+        ++i;
+      } else if (Character.isSurrogate(c)) {
+        bytes += 1;
+      } else {
+        bytes += 3;
+      }
+    }
+    writeVLong(bytes);
+    if (buffer.length - length < bytes) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2,
+        length + bytes));
+    }
+    for (int i = 0; i < chars; ++i) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[length++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[length++] = (byte) (0xC0 | (c >> 6));
+        buffer[length++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < chars &&
+        Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced, like String.getBytes does
+        buffer[length++] = (byte) '?';
+      } else {
+        buffer[length++] = (byte) (0xE0 | (c >> 12));
+        buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+}
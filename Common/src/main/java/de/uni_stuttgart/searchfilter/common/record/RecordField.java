@@ -0,0 +1,76 @@
+package de.uni_stuttgart.searchfilter.common.record;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+
+/**
+ * Fields of a stored record in the order they are encoded. Fields that are
+ * rarely needed or large come last, such that decoding the ones before does
+ * not touch them. New fields are only ever appended.
+ */
+public enum RecordField {
+  ID(Type.LONG, C.JSONFieldNames.ID),
+  DATE(Type.STRING, C.JSONFieldNames.DATE),
+  TEXT_LENGTH(Type.LONG, C.JSONFieldNames.TEXT_LENGTH),
+  CLUSTER(Type.LONG, C.JSONFieldNames.CLUSTER),
+  LATITUDE(Type.FLOAT, C.JSONFieldNames.LATITUDE),
+  LONGITUDE(Type.FLOAT, C.JSONFieldNames.LONGITUDE),
+  LANGUAGE(Type.DICTIONARY, C.JSONFieldNames.LANGUAGE),
+  CORPUS(Type.DICTIONARY, C.JSONFieldNames.CORPUS),
+  PUBLISHER(Type.DICTIONARY, C.JSONFieldNames.PUBLISHER),
+  PLACE_OF_PUBLICATION(Type.STRING, C.JSONFieldNames.PLACE_OF_PUBLICATION),
+  TITLE(Type.STRING, C.JSONFieldNames.TITLE),
+  LINK(Type.STRING, C.JSONFieldNames.LINK),
+  TEXT(Type.STRING, C.JSONFieldNames.TEXT);
+
+  /**
+   * Encodings of the values
+   */
+  enum Type {
+    /**
+     * Zig-zag encoded variable length integer
+     */
+    LONG,
+    /**
+     * Four bytes, coordinates have float precision like the locations file
+     */
+    FLOAT,
+    /**
+     * Variable length code of the value in the {@link RecordDictionary}
+     */
+    DICTIONARY,
+    /**
+     * Variable length number of bytes followed by the UTF-8 bytes
+     */
+    STRING
+  }
+
+  static final RecordField[] VALUES = values();
+
+  final Type type;
+  final String jsonName;
+
+  RecordField(Type type, String jsonName) {
+    this.type = type;
+    this.jsonName = jsonName;
+  }
+
+  /**
+   * @return name of the field in JSON responses and exports
+   */
+  public String jsonName() {
+    return jsonName;
+  }
+
+  /**
+   * @param jsonName name of the field in JSON responses and exports
+   * @return the field or null if there is none with the name
+   */
+  public static RecordField forJSONName(String jsonName) {
+    for (RecordField field : VALUES) {
+      if (field.jsonName.equals(jsonName)) {
+        return field;
+      }
+    }
+    return null;
+  }
+}
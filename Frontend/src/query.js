@@ -17,6 +17,8 @@ export function query (relativeUrl, callback) {
       url = 'http://localhost:8080/static/query.json'
     } else if (relativeUrl.startsWith('like')) {
       url = 'http://localhost:8080/static/query.json'
+    } else if (relativeUrl.startsWith('facets')) {
+      url = 'http://localhost:8080/static/facets.json'
     } else if (relativeUrl.startsWith('static')) {
       url = '../' + relativeUrl
     } else {
@@ -46,9 +46,28 @@ export class ViewCoordinator {
     t.createViews()
     t.prepareVisualization()
     t.updateVisualization()
+    if (t.gridData !== undefined) {
+      t.setGridData(t.gridData)
+    }
     t.setupDispatch()
   }
 
+  /**
+   * Pass the facets of the query to the view coordinator. The map draws their
+   * grid cells instead of the coordinates of single documents.
+   *
+   * @param data is the response of the facet endpoint
+   * @param data.grid contains the number of documents of each grid cell
+   * @param data.gridSize is the width and height of a cell in degrees
+   */
+  setGridData (data) {
+    let t = this
+    t.gridData = data
+    if (t.worldMap !== undefined) {
+      t.worldMap.update(data.grid, data.gridSize)
+    }
+  }
+
   createDimensionsGroups () {
     let t = this
     // Date dimension
@@ -193,7 +212,6 @@ export class ViewCoordinator {
     let t = this
     t.documentCount.update(t.dateCountGroup.all())
     t.textLength.update(t.textLengthData())
-    t.worldMap.update(t.locationDimension.top(Infinity))
     t.languageCount.update(t.languageGroup.reduceCount().top(Infinity))
     t.clusterCount.update(t.clusterDimensionGroup.reduceCount().top(20))
     t.vue.updateSelected(t.locationDimension.top(Infinity).length)
@@ -212,7 +230,8 @@ export class ViewCoordinator {
     if (t.documentCount !== undefined) {
       t.documentCount.update([])
     }
-    if (t.documentCount !== undefined) {
+    t.gridData = undefined
+    if (t.worldMap !== undefined) {
       t.worldMap.update([])
     }
     if (t.languageCount !== undefined) {
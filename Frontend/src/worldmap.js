@@ -4,6 +4,8 @@ import {View} from './view.js'
 import * as d3 from 'd3'
 
 const URL = 'static/world-110m.geojson'
+// The Mercator projection diverges at the poles
+const MAX_LATITUDE = 85
 
 export class WorldMap extends View {
   prepare () {
@@ -12,7 +14,7 @@ export class WorldMap extends View {
       .translate([t.width / 2, t.height])
     let path = d3.geoPath().projection(t.projection)
     t.keyFunction = function (d) {
-      return d.id
+      return d.latitude + ',' + d.longitude
     }
 
     function brushStart () {
@@ -40,38 +42,72 @@ export class WorldMap extends View {
       .on('end', brushEnd)
     d3.json(URL).then(function (geoJSON) {
       t.svgFull.append('path').attr('d', path(geoJSON)).attr('fill', t.defaultGray)
+      // The cells are drawn below the brush, so they do not catch its events
+      t.cells = t.svgFull.append('g')
       t.svgFull.append('g')
         .attr('class', 'brush')
         .call(t.brush)
       t.prepared = true
       if (t.data !== undefined) {
-        t.update(t.data)
+        t.update(t.data.cells, t.data.gridSize)
       }
     })
   }
 
-  update (data) {
+  /**
+   * Draw the grid cells of the facet endpoint, shaded by their number of
+   * documents.
+   *
+   * @param cells array of {latitude, longitude, value}, the coordinates are
+   *   the lower left corner of a cell
+   * @param gridSize width and height of a cell in degrees
+   */
+  update (cells, gridSize) {
     let t = this
     if (t.prepared) {
-      let updateSelection = t.svgFull.selectAll('circle')
-        .data(data.filter(function (d) {
-          return 'latitude' in d && 'longitude' in d
-        }), t.keyFunction)
+      let clip = function (latitude) {
+        return Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))
+      }
+      let corner = function (latitude, longitude) {
+        return t.projection([longitude, clip(latitude)])
+      }
+      let maximum = d3.max(cells, function (d) {
+        return d.value
+      })
+      let opacity = d3.scaleLog()
+        .domain([1, Math.max(2, maximum || 0)])
+        .range([0.3, 0.9])
+      let updateSelection = t.cells.selectAll('rect')
+        .data(cells, t.keyFunction)
       updateSelection.exit().remove()
-      updateSelection.enter()
-        .append('circle')
-        .attr('cx', function (d) {
-          return t.projection([d.longitude, d.latitude])[0]
+      let enterSelection = updateSelection.enter()
+        .append('rect')
+        .attr('fill', '#d73027')
+      enterSelection.append('title')
+      enterSelection.merge(updateSelection)
+        .attr('x', function (d) {
+          return corner(d.latitude, d.longitude)[0]
         })
-        .attr('cy', function (d) {
-          return t.projection([d.longitude, d.latitude])[1]
+        .attr('y', function (d) {
+          return corner(d.latitude + gridSize, d.longitude)[1]
         })
-        .attr('r', function (d) {
-          return d.hasOwnProperty('radius') ? d.radius : 2
+        .attr('width', function (d) {
+          return corner(d.latitude, d.longitude + gridSize)[0] -
+            corner(d.latitude, d.longitude)[0]
+        })
+        .attr('height', function (d) {
+          return corner(d.latitude, d.longitude)[1] -
+            corner(d.latitude + gridSize, d.longitude)[1]
+        })
+        .attr('fill-opacity', function (d) {
+          return opacity(d.value)
+        })
+        .select('title')
+        .text(function (d) {
+          return d.value + ' documents'
         })
-        .attr('fill', '#d73027')
     } else {
-      t.data = data
+      t.data = {cells: cells, gridSize: gridSize}
     }
   }
 }
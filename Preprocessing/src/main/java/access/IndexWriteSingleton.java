@@ -6,12 +6,16 @@ import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
 import org.apache.lucene.analysis.core.StopFilterFactory;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.store.FSDirectory;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This class represents a single instance of an index writer for a Lucene
@@ -20,8 +24,11 @@ import java.nio.file.Paths;
  * @author mo
  */
 public class IndexWriteSingleton {
+  private static final Logger log =
+    Logger.getLogger(IndexWriteSingleton.class.getName());
 
   private static IndexWriter indexWriterInstance = null;
+  private static IndexingStatistics statistics = null;
 
   private IndexWriteSingleton() {}
 
@@ -34,12 +41,58 @@ public class IndexWriteSingleton {
   public static IndexWriter getInstance() throws IOException {
     if (indexWriterInstance == null) {
       FSDirectory directory = FSDirectory.open(Paths.get(C.FilePath.index()));
-      IndexWriterConfig config = new IndexWriterConfig(buildAnalyzer());
-      indexWriterInstance = new IndexWriter(directory, config);
+      statistics = new IndexingStatistics();
+      indexWriterInstance = new IndexWriter(directory,
+        buildConfig(statistics));
     }
     return indexWriterInstance;
   }
 
+  /**
+   * Configure the writer for bulk loading, see the <i>process.writer</i>
+   * properties.
+   *
+   * @param statistics to collect flush and merge statistics
+   * @return writer configuration
+   * @throws IOException in case the analyzer could not be built
+   */
+  private static IndexWriterConfig buildConfig(IndexingStatistics statistics)
+    throws IOException {
+    IndexWriterConfig config = new IndexWriterConfig(buildAnalyzer());
+    config.setRAMBufferSizeMB(C.Process.writerRamBufferMB());
+    config.setRAMPerThreadHardLimitMB(C.Process.writerRamPerThreadLimitMB());
+    boolean compoundFile = C.Process.writerCompoundFile();
+    config.setUseCompoundFile(compoundFile);
+    TieredMergePolicy mergePolicy = new TieredMergePolicy();
+    mergePolicy.setSegmentsPerTier(C.Process.writerSegmentsPerTier());
+    mergePolicy.setMaxMergedSegmentMB(C.Process.writerMaxMergedSegmentMB());
+    mergePolicy.setFloorSegmentMB(C.Process.writerFloorSegmentMB());
+    if (!compoundFile) {
+      mergePolicy.setNoCFSRatio(0.0);
+    }
+    config.setMergePolicy(mergePolicy);
+    IndexingStatistics.MergeScheduler mergeScheduler =
+      statistics.newMergeScheduler();
+    int mergeThreads = C.Process.writerMergeThreads();
+    if (mergeThreads > 0) {
+      // Allow a few merges to queue up before indexing threads are stalled,
+      // like the defaults of the ConcurrentMergeScheduler do
+      mergeScheduler.setMaxMergesAndThreads(mergeThreads + 5, mergeThreads);
+    } else {
+      mergeScheduler.setMaxMergesAndThreads(
+        ConcurrentMergeScheduler.AUTO_DETECT_MERGES_AND_THREADS,
+        ConcurrentMergeScheduler.AUTO_DETECT_MERGES_AND_THREADS);
+    }
+    if (!C.Process.writerThrottleMerges()) {
+      mergeScheduler.disableAutoIOThrottle();
+    }
+    config.setMergeScheduler(mergeScheduler);
+    config.setInfoStream(statistics);
+    log.log(Level.INFO, "Index writer: " + config.getRAMBufferSizeMB() +
+      "MB RAM buffer, " + mergePolicy + ", " + mergeScheduler);
+    return config;
+  }
+
   private static Analyzer buildAnalyzer() throws IOException {
     return CustomAnalyzer.builder(Paths.get(C.FilePath.project()))
         .withTokenizer(StandardTokenizerFactory.class)
@@ -52,7 +105,26 @@ public class IndexWriteSingleton {
   }
 
   /**
-   * Close the writer and delete the instance.
+   * Merge the index down to the configured number of segments, if any. Fewer
+   * segments are faster to search, the merge itself may take long on a large
+   * index.
+   *
+   * @throws IOException in case merging failed
+   */
+  public static void forceMerge() throws IOException {
+    int segments = C.Process.writerForceMerge();
+    if (segments <= 0) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    getInstance().forceMerge(segments);
+    log.log(Level.INFO, "Merged the index down to " + segments +
+      " segments in " + (System.currentTimeMillis() - start) + "ms.");
+  }
+
+  /**
+   * Close the writer and delete the instance. Closing waits for running
+   * merges, so the statistics are logged afterwards.
    *
    * @throws IOException in case {@link IndexWriter} could not be closed
    */
@@ -60,6 +132,8 @@ public class IndexWriteSingleton {
     if (indexWriterInstance != null) {
       indexWriterInstance.close();
       indexWriterInstance = null;
+      statistics.report();
+      statistics = null;
     }
   }
 }
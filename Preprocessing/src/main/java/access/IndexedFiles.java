@@ -0,0 +1,224 @@
+package access;
+
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Records which files are completely contained in the index. The records
+ * are stored in the user data of the index commits: for every file its
+ * modification time, size and CRC32 checksum. A file whose record is missing
+ * or differs has to be (re)indexed. The commits also record the {@link
+ * #FORMAT} of the documents, an index of another format has to be rebuilt.
+ */
+public class IndexedFiles {
+  private static final Logger log =
+    Logger.getLogger(IndexedFiles.class.getName());
+
+  private static final String PREFIX = "file:";
+  private static final String SEPARATOR = ":";
+  private static final String FORMAT_KEY = "format";
+
+  /**
+   * Version of the indexed fields. It is increased whenever documents of
+   * unchanged files would no longer be found without being reindexed:
+   * <ol>
+   * <li>publication places as {@link org.apache.lucene.document.LatLonPoint}
+   * </li>
+   * <li>dates as days since 1970-01-01</li>
+   * </ol>
+   */
+  private static final String FORMAT = "2";
+
+  private final Map<String, String> records = new ConcurrentHashMap<>();
+  private String format = null;
+
+  /**
+   * Load the records of the last commit of the writer.
+   *
+   * @param writer of the index
+   */
+  public IndexedFiles(IndexWriter writer) {
+    Iterable<Map.Entry<String, String>> userData = writer.getLiveCommitData();
+    if (userData != null) {
+      for (Map.Entry<String, String> entry : userData) {
+        if (entry.getKey().startsWith(PREFIX)) {
+          records.put(entry.getKey().substring(PREFIX.length()),
+            entry.getValue());
+        } else if (entry.getKey().equals(FORMAT_KEY)) {
+          format = entry.getValue();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the index contains records of any file
+   */
+  public boolean isEmpty() {
+    return records.isEmpty();
+  }
+
+  /**
+   * @return true if the index was written with the current {@link #FORMAT}
+   */
+  public boolean isCurrentFormat() {
+    return FORMAT.equals(format);
+  }
+
+  /**
+   * Drop all records, e.g. because the index is rebuilt.
+   */
+  public void clear() {
+    records.clear();
+  }
+
+  /**
+   * Return the files whose content differs from their record. Records of
+   * files whose modification time changed, but not their content, are
+   * updated. Records of the changed files are dropped until they are
+   * indexed again.
+   *
+   * @param files currently in the document folder
+   * @return files that have to be (re)indexed
+   * @throws IOException in case a checksum could not be computed
+   */
+  public List<File> changed(File[] files) throws IOException {
+    List<File> changed = new ArrayList<>();
+    for (File file : files) {
+      String name = file.getName();
+      String record = records.get(name);
+      if (record != null) {
+        String[] parts = record.split(SEPARATOR);
+        if (parts.length == 3 &&
+          parts[0].equals(Long.toString(file.lastModified())) &&
+          parts[1].equals(Long.toString(file.length()))) {
+          continue;
+        }
+        String touched = record(file);
+        if (parts.length == 3 && touched.endsWith(SEPARATOR + parts[1] +
+          SEPARATOR + parts[2])) {
+          records.put(name, touched);
+          continue;
+        }
+      }
+      records.remove(name);
+      changed.add(file);
+    }
+    return changed;
+  }
+
+  /**
+   * Return the names of recorded files that no longer exist and drop their
+   * records.
+   *
+   * @param files currently in the document folder
+   * @return names of the removed files
+   */
+  public List<String> removed(File[] files) {
+    Map<String, File> existing = new HashMap<>();
+    for (File file : files) {
+      existing.put(file.getName(), file);
+    }
+    List<String> removed = new ArrayList<>();
+    for (String name : records.keySet()) {
+      if (!existing.containsKey(name)) {
+        removed.add(name);
+        records.remove(name);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Record that all documents of a file were added to the writer.
+   *
+   * @param file that was indexed
+   */
+  public void indexed(File file) {
+    try {
+      records.put(file.getName(), record(file));
+    } catch (IOException exception) {
+      // Without a record the file is reindexed by the next run
+      log.log(Level.WARNING, "Could not record " + file + ": " +
+        exception.getMessage());
+    }
+  }
+
+  /**
+   * Commit the writer together with the current records. The records only
+   * contain files whose documents were added before, so after a crash the
+   * next run resumes with the files that are not recorded.
+   *
+   * @param writer   to be committed
+   * @param liveData further user data, read when the commit is written
+   * @throws IOException in case committing failed
+   */
+  public void commit(IndexWriter writer,
+                     Supplier<Map<String, String>> liveData)
+    throws IOException {
+    setCommitData(writer, liveData);
+    long start = System.currentTimeMillis();
+    writer.commit();
+    log.log(Level.INFO, "Committed " + records.size() + " indexed files in " +
+      (System.currentTimeMillis() - start) + "ms.");
+  }
+
+  /**
+   * Set the current records as the user data of the next commit, e.g. the
+   * one when the writer is closed. The records are copied now, while the
+   * further user data is read when the commit is written, after the added
+   * documents were flushed. Data that documents depend on, like the {@link
+   * de.uni_stuttgart.searchfilter.common.record.RecordDictionary}, is
+   * therefore always complete.
+   *
+   * @param writer   to set the user data on
+   * @param liveData further user data
+   */
+  public void setCommitData(IndexWriter writer,
+                            Supplier<Map<String, String>> liveData) {
+    Map<String, String> files = userData();
+    writer.setLiveCommitData(() -> {
+      Map<String, String> userData = new HashMap<>(files);
+      userData.putAll(liveData.get());
+      return userData.entrySet().iterator();
+    });
+  }
+
+  private Map<String, String> userData() {
+    Map<String, String> userData = new HashMap<>();
+    records.forEach((name, record) -> userData.put(PREFIX + name, record));
+    userData.put(FORMAT_KEY, FORMAT);
+    return userData;
+  }
+
+  /**
+   * @param file to be recorded
+   * @return modification time, size and checksum of the file
+   * @throws IOException in case the file could not be read
+   */
+  private static String record(File file) throws IOException {
+    CRC32 checksum = new CRC32();
+    byte[] buffer = new byte[1 << 16];
+    try (InputStream inputStream = new FileInputStream(file)) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        checksum.update(buffer, 0, read);
+      }
+    }
+    return file.lastModified() + SEPARATOR + file.length() + SEPARATOR +
+      Long.toHexString(checksum.getValue());
+  }
+}
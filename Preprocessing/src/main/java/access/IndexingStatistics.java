@@ -0,0 +1,120 @@
+package access;
+
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.util.InfoStream;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collect flush and merge statistics of an {@link IndexWriter}. Flushes are
+ * counted from the messages of the writer's per-thread buffers (component
+ * <i>DWPT</i>), merges are measured by the {@link MergeScheduler}.
+ */
+public class IndexingStatistics extends InfoStream {
+  private static final Logger log =
+    Logger.getLogger(IndexingStatistics.class.getName());
+
+  private static final String COMPONENT = "DWPT";
+  private static final Pattern FLUSH =
+    Pattern.compile("^flush postings as segment \\S+ numDocs=(\\d+)");
+  private static final Pattern FLUSHED = Pattern.compile(
+    "^flushed: segment=\\S+ ramUsed=([\\d.,]+) MB " +
+      "newFlushedSize=([\\d.,]+) MB");
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong flushedDocs = new AtomicLong();
+  private final AtomicLong flushedKilobytes = new AtomicLong();
+  private final AtomicLong merges = new AtomicLong();
+  private final AtomicLong mergedDocs = new AtomicLong();
+  private final AtomicLong mergedBytes = new AtomicLong();
+  private final AtomicLong mergeNanos = new AtomicLong();
+
+  @Override
+  public boolean isEnabled(String component) {
+    return COMPONENT.equals(component);
+  }
+
+  @Override
+  public void message(String component, String message) {
+    // An exception thrown here aborts the flush and closes the writer
+    try {
+      count(message);
+    } catch (RuntimeException exception) {
+      log.log(Level.FINE, "Unexpected flush message: " + message);
+    }
+  }
+
+  private void count(String message) {
+    Matcher flush = FLUSH.matcher(message);
+    if (flush.find()) {
+      flushes.incrementAndGet();
+      flushedDocs.addAndGet(Long.parseLong(flush.group(1)));
+      return;
+    }
+    Matcher flushed = FLUSHED.matcher(message);
+    if (flushed.find()) {
+      double megabytes = parse(flushed.group(2));
+      flushedKilobytes.addAndGet(Math.round(megabytes * 1024));
+      log.log(Level.FINE, String.format("Flushed %.1fMB of buffer into a " +
+        "%.1fMB segment.", parse(flushed.group(1)), megabytes));
+    }
+  }
+
+  private static double parse(String number) {
+    // The numbers are formatted with Locale.ROOT, which groups thousands
+    // with a comma, e.g. 1,024.5
+    return Double.parseDouble(number.replace(",", ""));
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * @return merge scheduler that reports to these statistics
+   */
+  public MergeScheduler newMergeScheduler() {
+    return new MergeScheduler();
+  }
+
+  /**
+   * Log the totals.
+   */
+  public void report() {
+    log.log(Level.INFO, String.format("Flushed %d segments with %d documents " +
+        "(%.1fMB).", flushes.get(), flushedDocs.get(),
+      flushedKilobytes.get() / 1024.0));
+    log.log(Level.INFO, String.format("Merged %d times, %d documents " +
+        "(%.1fMB) in %.1fs of merge thread time.", merges.get(),
+      mergedDocs.get(), mergedBytes.get() / MEGABYTE, mergeNanos.get() / 1e9));
+  }
+
+  /**
+   * A {@link ConcurrentMergeScheduler} that measures each merge.
+   */
+  public class MergeScheduler extends ConcurrentMergeScheduler {
+
+    @Override
+    protected void doMerge(IndexWriter writer, MergePolicy.OneMerge merge)
+      throws IOException {
+      long start = System.nanoTime();
+      super.doMerge(writer, merge);
+      long nanos = System.nanoTime() - start;
+      merges.incrementAndGet();
+      mergedDocs.addAndGet(merge.totalMaxDoc);
+      mergedBytes.addAndGet(merge.totalBytesSize());
+      mergeNanos.addAndGet(nanos);
+      log.log(Level.INFO, String.format("Merged %d segments with %d " +
+          "documents (%.1fMB) in %.1fs.", merge.segments.size(),
+        merge.totalMaxDoc, merge.totalBytesSize() / MEGABYTE, nanos / 1e9));
+    }
+  }
+}
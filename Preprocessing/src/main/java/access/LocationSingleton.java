@@ -20,7 +20,7 @@ public class LocationSingleton {
 
   private LocationSingleton() {}
 
-  public static Map<String, Location> getInstance() {
+  public static synchronized Map<String, Location> getInstance() {
     if (locations == null) {
       locations = new HashMap<>();
 
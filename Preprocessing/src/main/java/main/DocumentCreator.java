@@ -1,159 +1,258 @@
 package main;
 
-import access.IndexWriteSingleton;
 import access.Location;
 import access.LocationSingleton;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.EpochDays;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import de.uni_stuttgart.searchfilter.common.record.RecordEncoder;
+import de.uni_stuttgart.searchfilter.common.record.RecordField;
 import org.apache.lucene.document.*;
-import org.apache.lucene.index.IndexWriter;
-import org.json.JSONObject;
+import org.apache.lucene.util.BytesRef;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-abstract class DocumentCreator implements Runnable {
+/**
+ * Base class of the creators of Lucene {@link Document}s. A creator is not
+ * thread-safe, every thread building documents uses its own instance.
+ */
+public abstract class DocumentCreator {
 
   static final Logger logger = Logger.getLogger(
       DocumentCreator.class.getName());
-  final IndexWriter writer;
-  final Document document;
-  final StoredField visualizationData;
-  final StoredField textData;
+  Document document;
+  // The small visualization record is kept in doc values, such that it is
+  // read without decompressing the stored text data
+  private BinaryDocValuesField visualizationData;
+  private StoredField textData;
+  // Stored records of the document, the encoders are reused for every
+  // document
+  private final RecordEncoder visualization;
+  private final RecordEncoder text;
   // Index fields
-  private final LongPoint idField;
-  private final IntPoint lengthField;
-  private final StringField dateField;
-  private final Field textField;
-  private final DoublePoint longitudeField;
-  private final DoublePoint latitudeField;
-  private final StringField languageField;
-  private final LongPoint clusterField;
-  File file;
-  AtomicInteger counter;
+  private LongPoint idField;
+  // Term of the ID, to replace the document when its file is reindexed
+  private StringField idTerm;
+  private IntPoint lengthField;
+  private IntPoint dayField;
+  private Field textField;
+  // Latitude and longitude as one two-dimensional point
+  private LatLonPoint locationField;
+  private StringField languageField;
+  private LongPoint clusterField;
+  // Doc values of the index fields, read column-wise by the searchers
+  private NumericDocValuesField idDocValues;
+  private NumericDocValuesField lengthDocValues;
+  private NumericDocValuesField dayDocValues;
+  private DoubleDocValuesField longitudeDocValues;
+  private DoubleDocValuesField latitudeDocValues;
+  private LatLonDocValuesField locationDocValues;
+  private SortedDocValuesField languageDocValues;
+  private NumericDocValuesField clusterDocValues;
+  private SortedDocValuesField corpusDocValues;
   Map<String, Location> locations;
 
-  DocumentCreator(File file, AtomicInteger counter) throws IOException {
-    this.file = file;
-    this.counter = counter;
+  /**
+   * @param dictionary to encode the stored records with, shared by all
+   *                   creators writing to the same index
+   */
+  protected DocumentCreator(RecordDictionary dictionary) {
+    this.visualization = new RecordEncoder(dictionary);
+    this.text = new RecordEncoder(dictionary);
     this.locations = LocationSingleton.getInstance();
-    // Setup the fields
+    newDocument();
+  }
+
+  /**
+   * Start a new document. The fields of the previous document are not
+   * reused, as documents are written in batches after they are built.
+   */
+  protected final void newDocument() {
     idField = new LongPoint(C.FieldNames.ID, 0);
-    visualizationData = new StoredField(C.FieldNames.VISUALIZATION, "");
-    textData = new StoredField(C.FieldNames.TEXT_DATA, "");
+    idTerm = new StringField(C.FieldNames.ID, "", Field.Store.NO);
+    visualizationData = new BinaryDocValuesField(C.FieldNames.VISUALIZATION,
+        new BytesRef());
+    textData = new StoredField(C.FieldNames.TEXT_DATA, new BytesRef());
     lengthField = new IntPoint(C.FieldNames.LENGTH, 0);
-    dateField = new StringField(C.FieldNames.DATE, "", Field.Store.NO);
+    dayField = new IntPoint(C.FieldNames.DAY, 0);
     textField = new TextField(C.FieldNames.TEXT, "", Field.Store.NO);
-    longitudeField = new DoublePoint(C.FieldNames.LONGITUDE, 0.0);
-    latitudeField = new DoublePoint(C.FieldNames.LATITUDE, 0.0);
+    locationField = new LatLonPoint(C.FieldNames.LOCATION, 0.0, 0.0);
     languageField = new StringField(C.FieldNames.LANGUAGE, "", Field.Store.NO);
     clusterField = new LongPoint(C.FieldNames.CLUSTER, 0);
+    idDocValues = new NumericDocValuesField(C.FieldNames.ID, 0);
+    lengthDocValues = new NumericDocValuesField(C.FieldNames.LENGTH, 0);
+    dayDocValues = new NumericDocValuesField(C.FieldNames.DAY, 0);
+    longitudeDocValues =
+        new DoubleDocValuesField(C.FieldNames.LONGITUDE, 0.0);
+    latitudeDocValues = new DoubleDocValuesField(C.FieldNames.LATITUDE, 0.0);
+    locationDocValues =
+        new LatLonDocValuesField(C.FieldNames.LOCATION, 0.0, 0.0);
+    languageDocValues =
+        new SortedDocValuesField(C.FieldNames.LANGUAGE, new BytesRef());
+    clusterDocValues = new NumericDocValuesField(C.FieldNames.CLUSTER, 0);
+    corpusDocValues =
+        new SortedDocValuesField(C.FieldNames.CORPUS, new BytesRef());
     document = new Document();
     document.add(idField);
+    document.add(idTerm);
     document.add(visualizationData);
     document.add(textData);
     document.add(lengthField);
-    document.add(dateField);
+    document.add(dayField);
     document.add(textField);
-    document.add(longitudeField);
-    document.add(latitudeField);
+    document.add(locationField);
     document.add(languageField);
     document.add(clusterField);
-    writer = IndexWriteSingleton.getInstance();
+    document.add(idDocValues);
+    document.add(lengthDocValues);
+    document.add(dayDocValues);
+    document.add(longitudeDocValues);
+    document.add(latitudeDocValues);
+    document.add(locationDocValues);
+    document.add(languageDocValues);
+    document.add(clusterDocValues);
+    document.add(corpusDocValues);
+    visualization.begin();
+    text.begin();
+  }
+
+  /**
+   * Store the visualization and text data of the current document.
+   *
+   * @return the document
+   */
+  protected final Document finishDocument() {
+    visualizationData.setBytesValue(visualization.encode());
+    textData.setBytesValue(text.encode());
+    return document;
   }
 
   /**
    * Add an identification
    *
    * @param identification String representation of the ID
-   * @param visualization  JSON that contains the visualization data
-   * @param text           JSON that contains the text data
    */
-  final void addIdentification(String identification, JSONObject visualization,
-      JSONObject text) {
+  protected final void addIdentification(String identification) {
     long id = Long.parseLong(identification);
     idField.setLongValue(id);
-    visualization.put(C.JSONFieldNames.ID, id);
-    text.put(C.JSONFieldNames.ID, id);
+    idTerm.setStringValue(Long.toString(id));
+    idDocValues.setLongValue(id);
+    visualization.put(RecordField.ID, id);
+    text.put(RecordField.ID, id);
   }
 
   /**
    * Add length of the text
    *
-   * @param text          Full text of the entire document
-   * @param visualization JSON that contains the visualization data
+   * @param fullText Full text of the entire document
    */
-  final void addTextLength(String text, JSONObject visualization) {
-    int length = text.split("\\s").length;
+  protected final void addTextLength(String fullText) {
+    int length = countWords(fullText);
     lengthField.setIntValue(length);
-    visualization.put(C.JSONFieldNames.TEXT_LENGTH, length);
+    lengthDocValues.setLongValue(length);
+    visualization.put(RecordField.TEXT_LENGTH, length);
+  }
+
+  /**
+   * Count the words of a text, i.e. the runs of non-whitespace characters,
+   * without splitting it.
+   *
+   * @param fullText to be counted
+   * @return number of words
+   */
+  static int countWords(String fullText) {
+    int words = 0;
+    boolean inWord = false;
+    for (int i = 0; i < fullText.length(); ++i) {
+      char c = fullText.charAt(i);
+      boolean whitespace = c == ' ' || c == '\n' || c == '\t' || c == '\r' ||
+          c == '\f' || c == '\u000B';
+      if (!whitespace && !inWord) {
+        ++words;
+      }
+      inWord = !whitespace;
+    }
+    return words;
   }
 
   /**
-   * Add date of the publication
+   * Add date of the publication. A partial date is completed to the first
+   * day of its year or month. The date is indexed as days since 1970-01-01,
+   * a malformed date is only stored.
    *
-   * @param date          ISO 8601 String representation of the date
-   * @param visualization JSON that contains the visualization data
-   * @param text          JSON that contains the text data
+   * @param date ISO 8601 String representation of the date
    */
-  final void addDate(String date, JSONObject visualization, JSONObject text) {
-    String[] elements = date.split("-");
-    switch (elements.length) {
-      case 1:
-        date = elements[0] + "-01-01";
-        break;
-      case 2:
-        date = elements[0] + "-" + elements[1] + "-01";
-        break;
-      default:
-        break;
+  protected final void addDate(String date) {
+    Integer day = EpochDays.first(date);
+    if (day != null) {
+      date = EpochDays.format(day);
+      dayField.setIntValue(day);
+      dayDocValues.setLongValue(day);
+    } else {
+      logger.log(Level.WARNING, "Malformed date: " + date);
+      document.removeFields(C.FieldNames.DAY);
     }
-    dateField.setStringValue(date);
-    visualization.put(C.JSONFieldNames.DATE, date);
-    text.put(C.JSONFieldNames.DATE, date);
+    visualization.put(RecordField.DATE, date);
+    text.put(RecordField.DATE, date);
   }
 
   /**
    * Add full text
    *
-   * @param text         full text
-   * @param textDocument JSON that contains the text data
+   * @param fullText full text
    */
-  final void addText(String text, JSONObject textDocument) {
-    textField.setStringValue(text);
-    textDocument.put(C.JSONFieldNames.TEXT, text);
+  protected final void addText(String fullText) {
+    textField.setStringValue(fullText);
+    text.put(RecordField.TEXT, fullText);
   }
 
   /**
    * Add publisher
    *
-   * @param publisher    publisher string
-   * @param textDocument JSON that contains the text data
+   * @param publisher publisher string
    */
-  final void addPublisher(String publisher, JSONObject textDocument) {
-    textDocument.put(C.JSONFieldNames.PUBLISHER, publisher);
+  protected final void addPublisher(String publisher) {
+    text.put(RecordField.PUBLISHER, publisher);
   }
 
   /**
    * Add title
    *
    * @param title title string
-   * @param textDocument JSON that contains the text data
    */
-  final void addTitle(String title, JSONObject textDocument) {
-    textDocument.put(C.JSONFieldNames.TITLE, title);
+  protected final void addTitle(String title) {
+    text.put(RecordField.TITLE, title);
   }
 
   /**
    * Add link
    *
-   * @param link         URL of article at library
-   * @param textDocument JSON that contains the text data
+   * @param link URL of article at library
+   */
+  protected final void addLink(String link) {
+    text.put(RecordField.LINK, link);
+  }
+
+  /**
+   * Add the place of publication and its coordinates. If the place is not
+   * known, the coordinates of the source are used, -1 if neither is known.
+   *
+   * @param placeOfPublication name of the place
+   * @param source             name of the source, may be null
    */
-  final void addLink(String link, JSONObject textDocument) {
-    textDocument.put(C.JSONFieldNames.LINK, link);
+  protected final void addLocation(String placeOfPublication, String source) {
+    text.put(RecordField.PLACE_OF_PUBLICATION, placeOfPublication);
+    Location location = locations.get(placeOfPublication);
+    if (location == null && source != null) {
+      location = locations.get(source);
+    }
+    if (location != null) {
+      addCoordinates(location.latitude, location.longitude);
+    } else {
+      addCoordinates(-1.0, -1.0);
+    }
   }
 
   /**
@@ -161,98 +260,46 @@ abstract class DocumentCreator implements Runnable {
    *
    * @param latitude
    * @param longitude
-   * @param visualization JSON that contains the visualization data
    */
-  final void addCoordinates(double latitude, double longitude,
-      JSONObject visualization, JSONObject text) {
-    text.put(C.JSONFieldNames.LATITUDE, latitude);
-    text.put(C.JSONFieldNames.LONGITUDE, longitude);
-    visualization.put(C.JSONFieldNames.LATITUDE, latitude);
-    visualization.put(C.JSONFieldNames.LONGITUDE, longitude);
-    latitudeField.setDoubleValue(latitude);
-    longitudeField.setDoubleValue(longitude);
+  private void addCoordinates(double latitude, double longitude) {
+    text.put(RecordField.LATITUDE, latitude);
+    text.put(RecordField.LONGITUDE, longitude);
+    visualization.put(RecordField.LATITUDE, latitude);
+    visualization.put(RecordField.LONGITUDE, longitude);
+    locationField.setLocationValue(latitude, longitude);
+    locationDocValues.setLocationValue(latitude, longitude);
+    latitudeDocValues.setDoubleValue(latitude);
+    longitudeDocValues.setDoubleValue(longitude);
   }
 
   /**
    * Add languages
    *
-   * @param language      ISO language code
-   * @param visualization JSON that contains the visualization data
+   * @param language ISO language code
    */
-  final void addLanguage(String language, JSONObject visualization, JSONObject text) {
-    text.put(C.JSONFieldNames.LANGUAGE, language);
-    visualization.put(C.JSONFieldNames.LANGUAGE, language);
+  protected final void addLanguage(String language) {
+    text.put(RecordField.LANGUAGE, language);
+    visualization.put(RecordField.LANGUAGE, language);
     languageField.setStringValue(language);
+    languageDocValues.setBytesValue(new BytesRef(language));
   }
 
   /**
    * Add cluster ID
    *
    * @param clusterString
-   * @param visualization JSON that contains the visualization data
    */
-  final void addCluster(String clusterString, JSONObject visualization, JSONObject text) {
+  protected final void addCluster(String clusterString) {
     long cluster = Long.parseLong(clusterString);
-    text.put(C.JSONFieldNames.CLUSTER, cluster);
-    visualization.put(C.JSONFieldNames.CLUSTER, cluster);
+    text.put(RecordField.CLUSTER, cluster);
+    visualization.put(RecordField.CLUSTER, cluster);
     clusterField.setLongValue(cluster);
+    clusterDocValues.setLongValue(cluster);
   }
 
-  /**
-   * Add the place of publication
-   *
-   * @param placeOfPublication
-   * @param text
-   */
-  final void addPlaceOfPublication(String placeOfPublication, JSONObject text) {
-    text.put(C.JSONFieldNames.PLACE_OF_PUBLICATION, placeOfPublication);
-  }
-
-  final void addCorpus(String corpus, JSONObject visualization, JSONObject text) {
-    text.put(C.JSONFieldNames.CORPUS, corpus);
-    visualization.put(C.JSONFieldNames.CORPUS, corpus);
-  }
-
-  /**
-   * Return the latitude of the given place of publication
-   *
-   * @param placeOfPublication
-   *
-   * @return latitude
-   */
-  final double getLatitude(String placeOfPublication) {
-    if (locations.containsKey(placeOfPublication)) {
-      return locations.get(placeOfPublication).latitude;
-    }
-    return -1.0;
-  }
-
-  /**
-   * Return the longitude of the given place of publication
-   *
-   * @param placeOfPublication
-   *
-   * @return longitude
-   */
-  final double getLongitude(String placeOfPublication) {
-    if (locations.containsKey(placeOfPublication)) {
-      return locations.get(placeOfPublication).longitude;
-    }
-    return -1.0;
-  }
-
-  /**
-   * Set all fields to default values.
-   */
-  final void resetFields() {
-    idField.setLongValue(0);
-    visualizationData.setStringValue("");
-    textData.setStringValue("");
-    lengthField.setIntValue(0);
-    dateField.setStringValue("");
-    textField.setStringValue("");
-    longitudeField.setDoubleValue(0.0);
-    latitudeField.setDoubleValue(0.0);
-    languageField.setStringValue("");
+  protected final void addCorpus(String corpus) {
+    text.put(RecordField.CORPUS, corpus);
+    visualization.put(RecordField.CORPUS, corpus);
+    corpusDocValues.setBytesValue(new BytesRef(corpus));
   }
 }
@@ -0,0 +1,390 @@
+package main;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index files in three stages that are connected by bounded queues:
+ * <ol>
+ * <li>readers decompress and parse the files into batches of records,</li>
+ * <li>builders turn the records into Lucene {@link Document}s and</li>
+ * <li>writers add the documents to the index in batches.</li>
+ * </ol>
+ * The batches of a file are spread over all builders and writers, so a
+ * single large file keeps all cores busy. The stages report how busy they
+ * are and how long they wait for their input or output, which shows the
+ * bottleneck of a run.
+ *
+ * @param <R> type of the records of a file
+ */
+public class IngestionPipeline<R> {
+
+  private static final Logger log =
+    Logger.getLogger(IngestionPipeline.class.getName());
+
+  /**
+   * Reads the records of a file, e.g. {@link ZippedCSVDocumentCreator#read}
+   *
+   * @param <R> type of the records
+   */
+  @FunctionalInterface
+  interface RecordReader<R> {
+    void read(File file, RecordSink<R> records)
+      throws IOException, InterruptedException;
+  }
+
+  /**
+   * Receives the records of a file, blocks if the builders fall behind
+   *
+   * @param <R> type of the records
+   */
+  @FunctionalInterface
+  public interface RecordSink<R> {
+    void accept(R record) throws InterruptedException;
+  }
+
+  /**
+   * Writes a batch of documents to the index, e.g. {@link
+   * org.apache.lucene.index.IndexWriter#addDocuments}
+   */
+  @FunctionalInterface
+  interface BatchWriter {
+    void write(List<Document> documents) throws IOException;
+  }
+
+  private final RecordReader<R> reader;
+  private final Supplier<Function<R, Document>> builders;
+  private final BatchWriter writer;
+  private final Consumer<File> indexed;
+  private final int batchSize;
+  private final BlockingQueue<Batch<R>> records;
+  private final BlockingQueue<Batch<Document>> documents;
+  // Markers that tell the builders and writers to stop
+  private final Batch<R> endOfRecords = new Batch<>(null, null);
+  private final Batch<Document> endOfDocuments = new Batch<>(null, null);
+  private final Stage read = new Stage("read");
+  private final Stage build = new Stage("build");
+  private final Stage write = new Stage("write");
+
+  /**
+   * @param reader   reads the records of a file
+   * @param builders creates one document builder per builder thread, a
+   *                 builder returns null for records that are not indexed
+   * @param writer   to write the documents with
+   * @param indexed  called once all documents of a file were written
+   */
+  IngestionPipeline(RecordReader<R> reader,
+                    Supplier<Function<R, Document>> builders,
+                    BatchWriter writer, Consumer<File> indexed) {
+    this.reader = reader;
+    this.builders = builders;
+    this.writer = writer;
+    this.indexed = indexed;
+    this.batchSize = C.Process.pipelineBatchSize();
+    this.records = new ArrayBlockingQueue<>(C.Process.pipelineQueueSize());
+    this.documents = new ArrayBlockingQueue<>(C.Process.pipelineQueueSize());
+  }
+
+  /**
+   * Index all files and wait until every document was written.
+   *
+   * @param files to be indexed
+   * @throws InterruptedException in case waiting for the stages was
+   *                              interrupted
+   */
+  void run(List<File> files) throws InterruptedException {
+    int readers = threads(C.Process.pipelineReaders());
+    int builderThreads = threads(C.Process.pipelineBuilders());
+    int writers = threads(C.Process.pipelineWriters());
+    log.log(Level.INFO, "Indexing " + files.size() + " files with " +
+      readers + " readers, " + builderThreads + " builders and " + writers +
+      " writers.");
+    long start = System.nanoTime();
+    ScheduledExecutorService reporter =
+      Executors.newSingleThreadScheduledExecutor();
+    long interval = C.Process.pipelineReportInterval();
+    if (interval > 0) {
+      reporter.scheduleAtFixedRate(() -> report(start), interval, interval,
+        TimeUnit.SECONDS);
+    }
+    ExecutorService writerPool = Executors.newFixedThreadPool(writers);
+    for (int i = 0; i < writers; ++i) {
+      writerPool.execute(this::writeDocuments);
+    }
+    ExecutorService builderPool = Executors.newFixedThreadPool(builderThreads);
+    for (int i = 0; i < builderThreads; ++i) {
+      builderPool.execute(this::buildDocuments);
+    }
+    ExecutorService readerPool = Executors.newFixedThreadPool(readers);
+    AtomicInteger counter = new AtomicInteger(0);
+    for (File file : files) {
+      readerPool.execute(() -> readFile(file, counter));
+    }
+    // Shut the stages down in order, each one after its input is exhausted
+    readerPool.shutdown();
+    readerPool.awaitTermination(24 * 7, TimeUnit.HOURS);
+    for (int i = 0; i < builderThreads; ++i) {
+      records.put(endOfRecords);
+    }
+    builderPool.shutdown();
+    builderPool.awaitTermination(24 * 7, TimeUnit.HOURS);
+    for (int i = 0; i < writers; ++i) {
+      documents.put(endOfDocuments);
+    }
+    writerPool.shutdown();
+    writerPool.awaitTermination(24 * 7, TimeUnit.HOURS);
+    reporter.shutdownNow();
+    report(start);
+  }
+
+  /**
+   * @param configured number of threads, 0 for one per core
+   * @return number of threads
+   */
+  private static int threads(int configured) {
+    return configured > 0 ? configured :
+      Runtime.getRuntime().availableProcessors();
+  }
+
+  private void readFile(File file, AtomicInteger counter) {
+    long start = System.nanoTime();
+    Batcher batcher = new Batcher(new FileProgress(file, indexed));
+    try {
+      reader.read(file, batcher);
+      batcher.flush();
+    } catch (IOException | RuntimeException exception) {
+      // commons-csv wraps read errors, e.g. of a truncated file, in an
+      // IllegalStateException
+      batcher.progress.failed = true;
+      log.log(Level.SEVERE, "Reading " + file + " failed: " +
+        exception.getMessage());
+    } catch (InterruptedException exception) {
+      batcher.progress.failed = true;
+      Thread.currentThread().interrupt();
+      return;
+    } finally {
+      read.busyNanos.addAndGet(System.nanoTime() - start -
+        batcher.blockedNanos);
+      // All batches of the file are on their way
+      batcher.progress.release();
+    }
+    log.log(Level.INFO,
+      "Finished reading " + counter.incrementAndGet() + " files.");
+    log.log(Level.INFO, "Finished file: " + file.toString());
+  }
+
+  private void buildDocuments() {
+    Function<R, Document> builder = builders.get();
+    try {
+      while (true) {
+        Batch<R> batch = take(records, build);
+        if (batch == endOfRecords) {
+          return;
+        }
+        long start = System.nanoTime();
+        // Documents are tagged with their file, so the documents of a
+        // changed or removed file can be deleted
+        String file = batch.progress.file.getName();
+        List<Document> built = new ArrayList<>(batch.items.size());
+        for (R record : batch.items) {
+          try {
+            Document document = builder.apply(record);
+            if (document != null) {
+              document.add(new StringField(C.FieldNames.FILE, file,
+                Field.Store.NO));
+              built.add(document);
+            }
+          } catch (RuntimeException exception) {
+            log.log(Level.WARNING, "Skipping malformed record: " +
+              exception.getMessage());
+          }
+        }
+        build.busyNanos.addAndGet(System.nanoTime() - start);
+        if (built.isEmpty()) {
+          batch.progress.release();
+        } else {
+          put(documents, new Batch<>(batch.progress, built), build);
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void writeDocuments() {
+    try {
+      while (true) {
+        Batch<Document> batch = take(documents, write);
+        if (batch == endOfDocuments) {
+          return;
+        }
+        long start = System.nanoTime();
+        try {
+          writer.write(batch.items);
+          write.items.addAndGet(batch.items.size());
+        } catch (IOException | RuntimeException exception) {
+          // The writer keeps draining the queue, otherwise the builders
+          // block on a full queue once all writers are gone
+          batch.progress.failed = true;
+          log.log(Level.SEVERE, "Adding documents failed: " +
+            exception.getMessage());
+        }
+        write.busyNanos.addAndGet(System.nanoTime() - start);
+        batch.progress.release();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Pass a batch to the next stage.
+   *
+   * @return nanoseconds the stage was blocked because the queue was full
+   */
+  private static <T> long put(BlockingQueue<Batch<T>> queue, Batch<T> batch,
+                              Stage stage) throws InterruptedException {
+    stage.items.addAndGet(batch.items.size());
+    long start = System.nanoTime();
+    queue.put(batch);
+    long blocked = System.nanoTime() - start;
+    stage.blockedNanos.addAndGet(blocked);
+    return blocked;
+  }
+
+  /**
+   * Take a batch from the previous stage.
+   */
+  private static <T> Batch<T> take(BlockingQueue<Batch<T>> queue, Stage stage)
+    throws InterruptedException {
+    long start = System.nanoTime();
+    Batch<T> batch = queue.take();
+    stage.waitingNanos.addAndGet(System.nanoTime() - start);
+    return batch;
+  }
+
+  private void report(long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    for (Stage stage : new Stage[]{read, build, write}) {
+      log.log(Level.INFO, stage.report(seconds));
+    }
+    log.log(Level.INFO, String.format("After %.0fs, queued batches: %d " +
+      "records, %d documents.", seconds, records.size(), documents.size()));
+  }
+
+  /**
+   * Records or documents of a file passed between two stages
+   */
+  private static class Batch<T> {
+    private final FileProgress progress;
+    private final List<T> items;
+
+    private Batch(FileProgress progress, List<T> items) {
+      this.progress = progress;
+      this.items = items;
+    }
+  }
+
+  /**
+   * Tracks the batches of a file that were not written yet. The reader holds
+   * one reference until it has read the whole file, every batch holds one
+   * until it is written or turns out to be empty.
+   */
+  private static class FileProgress {
+    private final File file;
+    private final Consumer<File> indexed;
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private volatile boolean failed = false;
+
+    private FileProgress(File file, Consumer<File> indexed) {
+      this.file = file;
+      this.indexed = indexed;
+    }
+
+    private void acquire() {
+      pending.incrementAndGet();
+    }
+
+    private void release() {
+      if (pending.decrementAndGet() == 0 && !failed) {
+        indexed.accept(file);
+      }
+    }
+  }
+
+  /**
+   * Collects the records of a file into batches for the builders
+   */
+  private class Batcher implements RecordSink<R> {
+    private final FileProgress progress;
+    private List<R> batch = new ArrayList<>(batchSize);
+    private long blockedNanos = 0;
+
+    private Batcher(FileProgress progress) {
+      this.progress = progress;
+    }
+
+    @Override
+    public void accept(R record) throws InterruptedException {
+      batch.add(record);
+      if (batch.size() >= batchSize) {
+        flush();
+      }
+    }
+
+    private void flush() throws InterruptedException {
+      if (!batch.isEmpty()) {
+        progress.acquire();
+        blockedNanos += put(records, new Batch<>(progress, batch), read);
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+  }
+
+  /**
+   * Counters of a stage, summed over its threads
+   */
+  private static class Stage {
+    private final String name;
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitingNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private Stage(String name) {
+      this.name = name;
+    }
+
+    /**
+     * @param seconds since the start of the pipeline
+     * @return throughput and thread time spent working, waiting for input
+     * and blocked on a full output queue
+     */
+    private String report(double seconds) {
+      return String.format("Stage %s: %d items (%.0f/s), busy %.1fs, " +
+          "waiting for input %.1fs, blocked on output %.1fs.", name,
+        items.get(), items.get() / seconds, busyNanos.get() / 1e9,
+        waitingNanos.get() / 1e9, blockedNanos.get() / 1e9);
+    }
+  }
+}
@@ -1,18 +1,28 @@
 package main;
 
 import access.IndexWriteSingleton;
+import access.IndexedFiles;
 import de.uni_stuttgart.searchfilter.common.access.FilesAccess;
 import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class Main {
+  private static final Logger log = Logger.getLogger(Main.class.getName());
+
   public static void main(String[] args)
     throws IOException, InterruptedException {
     if (args.length < 1) {
@@ -28,31 +38,102 @@ public class Main {
 
   private static void indexDocuments()
     throws IOException, InterruptedException {
-    // Clear previous index
     IndexWriter indexWriter = IndexWriteSingleton.getInstance();
-    indexWriter.deleteAll();
-    indexWriter.commit();
-    // Index new files
+    IndexedFiles indexedFiles = new IndexedFiles(indexWriter);
     File[] files = new FilesAccess(C.FilePath.document()).getFiles();
-    int cores = Runtime.getRuntime().availableProcessors();
-    ExecutorService executorService = Executors.newFixedThreadPool(cores);
-    String type = C.Process.type();
-    AtomicInteger counter = new AtomicInteger(0);
-    for (File file : files) {
-      switch (type) {
-        case GZIP_JSON: {
-          break;
+    RecordDictionary dictionary;
+    boolean rebuild = !C.Process.incremental() || indexedFiles.isEmpty();
+    if (!rebuild && !indexedFiles.isCurrentFormat()) {
+      log.log(Level.INFO, "The index was written in an older format, " +
+        "rebuilding it.");
+      rebuild = true;
+    }
+    if (rebuild) {
+      // Clear previous index. The deletion is committed together with the new
+      // documents, so searchers keep seeing the previous index until then.
+      indexWriter.deleteAll();
+      indexedFiles.clear();
+      dictionary = new RecordDictionary();
+      index(Arrays.asList(files), dictionary, indexWriter::addDocuments,
+        indexedFiles);
+    } else {
+      // New documents extend the dictionary of the documents in the index
+      dictionary = RecordDictionary.read(indexWriter.getLiveCommitData());
+      indexChangedFiles(files, dictionary, indexWriter, indexedFiles);
+    }
+    // The last commit records all indexed files
+    indexedFiles.setCommitData(indexWriter, dictionary::userData);
+    IndexWriteSingleton.forceMerge();
+    IndexWriteSingleton.deleteInstance();
+  }
+
+  /**
+   * Delete the documents of changed and removed files and index the changed
+   * files. Unless <i>process.checkpointInterval</i> is 0, the index is
+   * committed periodically, such that an interrupted run resumes with the
+   * files that were not committed.
+   */
+  private static void indexChangedFiles(File[] files,
+                                        RecordDictionary dictionary,
+                                        IndexWriter indexWriter,
+                                        IndexedFiles indexedFiles)
+    throws IOException, InterruptedException {
+    List<File> changed = indexedFiles.changed(files);
+    List<String> removed = indexedFiles.removed(files);
+    log.log(Level.INFO, "Reindexing " + changed.size() + " changed files, " +
+      "deleting " + removed.size() + " removed files.");
+    for (String name : removed) {
+      indexWriter.deleteDocuments(new Term(C.FieldNames.FILE, name));
+    }
+    for (File file : changed) {
+      indexWriter.deleteDocuments(new Term(C.FieldNames.FILE, file.getName()));
+    }
+    ScheduledExecutorService checkpoints =
+      Executors.newSingleThreadScheduledExecutor();
+    long interval = C.Process.checkpointInterval();
+    if (interval > 0) {
+      checkpoints.scheduleWithFixedDelay(() -> {
+        try {
+          indexedFiles.commit(indexWriter, dictionary::userData);
+        } catch (IOException exception) {
+          log.log(Level.WARNING, "Checkpoint failed: " +
+            exception.getMessage());
         }
-        case GZIP_CSV: {
-          ZippedCSVDocumentCreator documentCreator =
-            new ZippedCSVDocumentCreator(file, counter);
-          executorService.execute(documentCreator);
-          break;
+      }, interval, interval, TimeUnit.SECONDS);
+    }
+    try {
+      // A document that moved to another file replaces its previous version
+      index(changed, dictionary, documents -> {
+        for (Document document : documents) {
+          indexWriter.updateDocument(
+            new Term(C.FieldNames.ID, document.get(C.FieldNames.ID)),
+            document);
         }
+      }, indexedFiles);
+    } finally {
+      checkpoints.shutdown();
+      checkpoints.awaitTermination(1, TimeUnit.HOURS);
+    }
+  }
+
+  private static void index(List<File> files, RecordDictionary dictionary,
+                            IngestionPipeline.BatchWriter writer,
+                            IndexedFiles indexedFiles)
+    throws InterruptedException {
+    String type = C.Process.type();
+    switch (type) {
+      case GZIP_JSON: {
+        new IngestionPipeline<String>(ZippedJSONDocumentCreator::read,
+          () -> new ZippedJSONDocumentCreator(dictionary)::create, writer,
+          indexedFiles::indexed).run(files);
+        break;
+      }
+      case GZIP_CSV: {
+        new IngestionPipeline<CSVRecord>(ZippedCSVDocumentCreator::read,
+          () -> new ZippedCSVDocumentCreator(dictionary)::create, writer,
+          indexedFiles::indexed).run(files);
+        break;
       }
     }
-    executorService.shutdown();
-    executorService.awaitTermination(24 * 7, TimeUnit.HOURS);
-    IndexWriteSingleton.deleteInstance();
   }
 }
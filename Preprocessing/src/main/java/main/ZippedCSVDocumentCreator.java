@@ -1,89 +1,80 @@
 package main;
 
 import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.json.JSONObject;
+import org.apache.lucene.document.Document;
 
 import java.io.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 
 public class ZippedCSVDocumentCreator extends DocumentCreator {
 
-  private static final Logger log = Logger.getLogger(
-      ZippedCSVDocumentCreator.class.getName());
+  private final boolean includeNonOpen;
 
-  ZippedCSVDocumentCreator(File file, AtomicInteger counter)
-      throws IOException {
-    super(file, counter);
+  /**
+   * @param dictionary to encode the stored records with
+   */
+  public ZippedCSVDocumentCreator(RecordDictionary dictionary) {
+    super(dictionary);
+    includeNonOpen = C.Process.includeNonOpen();
   }
 
-  @Override
-  public void run() {
-    BufferedReader bufferedReader;
-    Iterable<CSVRecord> records;
-    try {
-      FileInputStream fileInputStream = new FileInputStream(file);
-      GZIPInputStream gzipInputStream = new GZIPInputStream(fileInputStream);
-      InputStreamReader inputStreamReader = new InputStreamReader(
-          gzipInputStream);
-      bufferedReader = new BufferedReader(inputStreamReader);
-      records = CSVFormat.DEFAULT.withHeader().withSkipHeaderRecord().parse(
-          bufferedReader);
-    } catch (IOException exception) {
-      exception.printStackTrace();
-      return;
-    }
-    boolean includeNonOpen = C.Process.includeNonOpen();
-    for (CSVRecord record : records) {
-      String open = record.get(C.CSV.OPEN_DOCUMENT).toLowerCase();
-      if (includeNonOpen || open.equals("true")) {
-        addDocument(record);
+  /**
+   * Decompress and parse a gzipped CSV file. The records are passed on in
+   * file order, building the documents is left to the {@link
+   * IngestionPipeline}'s builders.
+   *
+   * @param file    gzipped CSV file with a header line
+   * @param records to pass the records to
+   * @throws IOException          in case reading the file failed
+   * @throws InterruptedException in case the pipeline was interrupted
+   */
+  public static void read(File file,
+                          IngestionPipeline.RecordSink<CSVRecord> records)
+      throws IOException, InterruptedException {
+    FileInputStream fileInputStream = new FileInputStream(file);
+    GZIPInputStream gzipInputStream = new GZIPInputStream(fileInputStream,
+        1 << 16);
+    InputStreamReader inputStreamReader = new InputStreamReader(
+        gzipInputStream);
+    BufferedReader bufferedReader = new BufferedReader(inputStreamReader,
+        1 << 16);
+    try (CSVParser parser = CSVFormat.DEFAULT.withHeader()
+        .withSkipHeaderRecord().parse(bufferedReader)) {
+      for (CSVRecord record : parser) {
+        records.accept(record);
       }
     }
-    try {
-      bufferedReader.close();
-    } catch (IOException exception) {
-      // Nothing bad happens, if we are unable to close the file
-    }
-    log.log(Level.INFO,
-        "Finished indexing " + counter.incrementAndGet() + "  files.");
-    logger.log(Level.INFO, "Finished file: " + file.toString());
   }
 
-  private void addDocument(CSVRecord record) {
-    JSONObject text = new JSONObject();
-    JSONObject visualization = new JSONObject();
-    addIdentification(record.get(C.CSV.ID), visualization, text);
-    addTextLength(record.get(C.CSV.TEXT), visualization);
-    addDate(record.get(C.CSV.DATE), visualization, text);
-    addText(record.get(C.CSV.TEXT), text);
-    addPublisher(record.get(C.CSV.PUBLISHER), text);
-    addTitle(record.get(C.CSV.TITLE), text);
-    addCluster(record.get(C.CSV.CLUSTER), visualization, text);
-    addLink(record.get(C.CSV.LINK), text);
-    addPlaceOfPublication(record.get(C.CSV.PLACE_OF_PUBLICATION), text);
-    if (locations.containsKey(record.get(C.CSV.PLACE_OF_PUBLICATION))) {
-      addCoordinates(getLatitude(record.get(C.CSV.PLACE_OF_PUBLICATION)),
-          getLongitude(record.get(C.CSV.PLACE_OF_PUBLICATION)), visualization, text);
-    } else if (locations.containsKey(record.get(C.CSV.SOURCE))) {
-      addCoordinates(getLatitude(record.get(C.CSV.SOURCE)),
-          getLongitude(record.get(C.CSV.SOURCE)), visualization, text);
-    } else {
-      addCoordinates(-1.0, -1.0, visualization, text);
-    }
-    addLanguage(record.get(C.CSV.LANGUAGE), visualization, text);
-    addCorpus(record.get(C.CSV.CORPUS), visualization, text);
-    super.visualizationData.setStringValue(visualization.toString());
-    super.textData.setStringValue(text.toString());
-    try {
-      writer.addDocument(super.document);
-    } catch (IOException exception) {
-      exception.printStackTrace();
+  /**
+   * Build the document of a record.
+   *
+   * @param record CSV record
+   * @return document or null if the record is not indexed
+   */
+  public Document create(CSVRecord record) {
+    if (!includeNonOpen &&
+        !record.get(C.CSV.OPEN_DOCUMENT).equalsIgnoreCase("true")) {
+      return null;
     }
-    resetFields();
+    newDocument();
+    String fullText = record.get(C.CSV.TEXT);
+    addIdentification(record.get(C.CSV.ID));
+    addTextLength(fullText);
+    addDate(record.get(C.CSV.DATE));
+    addText(fullText);
+    addPublisher(record.get(C.CSV.PUBLISHER));
+    addTitle(record.get(C.CSV.TITLE));
+    addCluster(record.get(C.CSV.CLUSTER));
+    addLink(record.get(C.CSV.LINK));
+    addLocation(record.get(C.CSV.PLACE_OF_PUBLICATION),
+        record.get(C.CSV.SOURCE));
+    addLanguage(record.get(C.CSV.LANGUAGE));
+    addCorpus(record.get(C.CSV.CORPUS));
+    return finishDocument();
   }
 }
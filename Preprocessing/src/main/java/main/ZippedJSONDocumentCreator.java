@@ -0,0 +1,86 @@
+package main;
+
+import de.uni_stuttgart.searchfilter.common.configuration.C;
+import de.uni_stuttgart.searchfilter.common.record.RecordDictionary;
+import org.apache.lucene.document.Document;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Create documents from gzipped JSON lines files, one JSON object per line.
+ */
+public class ZippedJSONDocumentCreator extends DocumentCreator {
+
+  private final boolean includeNonOpen;
+
+  /**
+   * @param dictionary to encode the stored records with
+   */
+  public ZippedJSONDocumentCreator(RecordDictionary dictionary) {
+    super(dictionary);
+    includeNonOpen = C.Process.includeNonOpen();
+  }
+
+  /**
+   * Decompress a gzipped JSON lines file and pass its lines on in file
+   * order. The lines are parsed by the {@link IngestionPipeline}'s builders,
+   * so parsing is spread over all builder threads.
+   *
+   * @param file    gzipped JSON lines file
+   * @param records to pass the lines to
+   * @throws IOException          in case reading the file failed
+   * @throws InterruptedException in case the pipeline was interrupted
+   */
+  public static void read(File file,
+                          IngestionPipeline.RecordSink<String> records)
+      throws IOException, InterruptedException {
+    FileInputStream fileInputStream = new FileInputStream(file);
+    GZIPInputStream gzipInputStream = new GZIPInputStream(fileInputStream,
+        1 << 16);
+    InputStreamReader inputStreamReader = new InputStreamReader(
+        gzipInputStream, StandardCharsets.UTF_8);
+    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader,
+        1 << 16)) {
+      String line;
+      while ((line = bufferedReader.readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          records.accept(line);
+        }
+      }
+    }
+  }
+
+  /**
+   * Build the document of a line. A line that is no valid JSON object or
+   * lacks the ID, date, text or cluster throws a {@link
+   * org.json.JSONException}.
+   *
+   * @param line JSON object
+   * @return document or null if the record is not indexed
+   */
+  public Document create(String line) {
+    JSONObject record = new JSONObject(new JSONTokener(line));
+    if (!includeNonOpen && !record.optBoolean(C.JSON.OPEN_DOCUMENT, true)) {
+      return null;
+    }
+    newDocument();
+    String fullText = record.getString(C.JSON.TEXT);
+    addIdentification(record.get(C.JSON.ID).toString());
+    addTextLength(fullText);
+    addDate(record.getString(C.JSON.DATE));
+    addText(fullText);
+    addPublisher(record.optString(C.JSON.PUBLISHER));
+    addTitle(record.optString(C.JSON.TITLE));
+    addCluster(record.get(C.JSON.CLUSTER).toString());
+    addLink(record.optString(C.JSON.LINK));
+    addLocation(record.optString(C.JSON.PLACE_OF_PUBLICATION),
+        record.optString(C.JSON.SOURCE));
+    addLanguage(record.optString(C.JSON.LANGUAGE));
+    addCorpus(record.optString(C.JSON.CORPUS));
+    return finishDocument();
+  }
+}